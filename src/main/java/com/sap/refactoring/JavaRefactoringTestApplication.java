@@ -2,11 +2,13 @@ package com.sap.refactoring;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 /**
  * The application.
  */
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class JavaRefactoringTestApplication {
 
     public static void main(String[] args) {
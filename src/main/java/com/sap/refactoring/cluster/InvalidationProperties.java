@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.cluster;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the {@link UserInvalidationBus}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "users.invalidation")
+public class InvalidationProperties {
+
+    /**
+     * Whether user changes are exchanged with other application instances.
+     */
+    private boolean enabled = true;
+
+    /**
+     * The PostgreSQL notification channel.
+     */
+    private String channel = "users_changed";
+
+    /**
+     * How long to wait for further notifications once one has been received, so that bursts are handled as a batch.
+     */
+    private Duration coalesceWindow = Duration.ofMillis(5);
+
+    /**
+     * The number of distinct users in a batch above which all users are invalidated instead of each of them.
+     */
+    private int maxBatchSize = 1_000;
+
+    /**
+     * The delay before reconnecting after the listening connection has been lost.
+     */
+    private Duration reconnectDelay = Duration.ofSeconds(1);
+}
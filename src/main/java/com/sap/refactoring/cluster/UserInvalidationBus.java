@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.cluster;
+
+import com.sap.refactoring.service.UserChangedEvent;
+import jakarta.annotation.Nonnull;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import org.apache.commons.lang3.StringUtils;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Exchanges {@link UserChangedEvent}s between application instances via PostgreSQL {@code LISTEN/NOTIFY}.
+ * <p>
+ * Local changes are sent with {@code pg_notify} inside the writing transaction, so that other instances are only
+ * notified once, and if, the change has been committed. A dedicated connection outside the pool listens for the changes
+ * of other instances; notifications arriving within the coalesce window are merged per user and re-published as remote
+ * events. Whenever the listening connection is (re-)established, all users are invalidated, as notifications may have
+ * been missed in the meantime.
+ */
+@Component
+@ConditionalOnProperty(prefix = "users.invalidation", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class UserInvalidationBus implements SmartLifecycle {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UserInvalidationBus.class);
+    private static final String SEPARATOR = "|";
+
+    private final InvalidationProperties properties;
+    private final JdbcConnectionDetails connectionDetails;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String nodeId = UUID.randomUUID().toString();
+    private volatile Thread listener;
+    private volatile Connection connection;
+    private volatile boolean listening;
+
+    /**
+     * Constructor.
+     *
+     * @param properties        The invalidation properties
+     * @param connectionDetails The details of the connection of the data source, used for the listening connection
+     * @param jdbcTemplate      The JDBC template, used to send notifications
+     * @param eventPublisher    The publisher for remote {@link UserChangedEvent}s
+     */
+    public UserInvalidationBus(final InvalidationProperties properties, final JdbcConnectionDetails connectionDetails,
+            final JdbcTemplate jdbcTemplate, final ApplicationEventPublisher eventPublisher) {
+        this.properties = properties;
+        this.connectionDetails = connectionDetails;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Notifies the other instances of a local change, as part of the transaction making the change.
+     *
+     * @param event The event
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, condition = "!#event.remote()")
+    public void onUserChanged(@Nonnull final UserChangedEvent event) {
+        jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", properties.getChannel(), encode(nodeId, event));
+    }
+
+    @Override
+    public void start() {
+        final var thread = new Thread(this::listen, "user-invalidation-listener");
+        thread.setDaemon(true);
+        listener = thread;
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        final var thread = listener;
+        listener = null;
+        if (thread != null) {
+            thread.interrupt();
+            closeConnection();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return listener != null;
+    }
+
+    /**
+     * Checks if the changes of other instances are currently received.
+     *
+     * @return True if listening
+     */
+    public boolean isListening() {
+        return listening;
+    }
+
+    private void listen() {
+        while (listener == Thread.currentThread()) {
+            try {
+                connection = DriverManager.getConnection(connectionDetails.getJdbcUrl(),
+                        connectionDetails.getUsername(), connectionDetails.getPassword());
+                try (var statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + properties.getChannel());
+                }
+                eventPublisher.publishEvent(UserChangedEvent.all(true));
+                listening = true;
+                receive(connection.unwrap(PGConnection.class));
+            } catch (final SQLException ex) {
+                if (listener == Thread.currentThread()) {
+                    LOG.warn("Lost the connection listening for user changes, reconnecting: {}", ex.getMessage());
+                    sleep(properties.getReconnectDelay().toMillis());
+                }
+            } finally {
+                listening = false;
+                closeConnection();
+            }
+        }
+    }
+
+    private void receive(final PGConnection pgConnection) throws SQLException {
+        final var batch = new LinkedHashMap<Long, UserChangedEvent>();
+        while (listener == Thread.currentThread()) {
+            // block until something arrives, then keep collecting for the coalesce window
+            collect(pgConnection.getNotifications(0), batch);
+            final var windowEnd = System.nanoTime() + properties.getCoalesceWindow().toNanos();
+            var remaining = properties.getCoalesceWindow().toMillis();
+            while (remaining > 0 && !batch.isEmpty()) {
+                collect(pgConnection.getNotifications((int) remaining), batch);
+                remaining = (windowEnd - System.nanoTime()) / 1_000_000L;
+            }
+            publish(batch);
+            batch.clear();
+        }
+    }
+
+    private void collect(final PGNotification[] notifications, final Map<Long, UserChangedEvent> batch) {
+        if (notifications == null) {
+            return;
+        }
+        for (final var notification : notifications) {
+            final var event = decode(nodeId, notification.getParameter());
+            if (event != null) {
+                batch.putIfAbsent(event.id(), event);
+            }
+        }
+    }
+
+    private void publish(final Map<Long, UserChangedEvent> batch) {
+        if (batch.containsKey(null) || batch.size() > properties.getMaxBatchSize()) {
+            eventPublisher.publishEvent(UserChangedEvent.all(true));
+        } else {
+            batch.values().forEach(eventPublisher::publishEvent);
+        }
+    }
+
+    private void closeConnection() {
+        final var current = connection;
+        connection = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (final SQLException ex) {
+                LOG.debug("Failed to close the connection listening for user changes", ex);
+            }
+        }
+    }
+
+    private static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Encodes a change as notification payload.
+     *
+     * @param nodeId The id of the sending instance
+     * @param event  The event
+     * @return The payload
+     */
+    static String encode(@Nonnull final String nodeId, @Nonnull final UserChangedEvent event) {
+        return nodeId + SEPARATOR + (event.isAll() ? "" : event.id()) + SEPARATOR
+                + StringUtils.defaultString(event.email());
+    }
+
+    /**
+     * Decodes a notification payload into a remote event.
+     *
+     * @param nodeId  The id of the receiving instance
+     * @param payload The payload
+     * @return The event, or null if the payload has been sent by the receiving instance
+     */
+    static UserChangedEvent decode(@Nonnull final String nodeId, @Nonnull final String payload) {
+        final var parts = payload.split("\\|", 3);
+        if (parts.length < 3 || nodeId.equals(parts[0])) {
+            return null;
+        }
+        final var id = parts[1].isEmpty() ? null : Long.valueOf(parts[1]);
+        return new UserChangedEvent(id, StringUtils.defaultIfEmpty(parts[2], null), true);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.Nonnull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.PriorityOrdered;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Applies the {@link DataSourcePoolProperties} to the Hikari connection pool, and defers obtaining a pooled connection
+ * until it is actually used.
+ */
+@Configuration(proxyBeanMethods = false)
+public class DataSourcePoolConfiguration {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DataSourcePoolConfiguration.class);
+
+    /**
+     * Sizes any Hikari pool without an explicitly configured size, once its {@code spring.datasource.hikari.*}
+     * properties have been bound. This happens before initialization, as other post processors may wrap the pool
+     * afterwards.
+     *
+     * @param properties The pool properties
+     * @return The post processor
+     */
+    @Bean
+    static BeanPostProcessor hikariPoolSizer(final ObjectProvider<DataSourcePoolProperties> properties) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(@Nonnull final Object bean, @Nonnull final String beanName) {
+                if (bean instanceof HikariDataSource dataSource) {
+                    applyPoolSize(dataSource, properties.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Wraps any Hikari pool in a {@link LazyConnectionDataSourceProxy}, so that a transaction only obtains a physical
+     * connection with its first statement. Waiting for a connection thus happens within the guarded data access
+     * operation (see {@link com.sap.refactoring.users.PersistenceGuard}), and transactions answered from the
+     * second-level cache do not need a connection at all. Runs ahead of the post processors wrapping any data source.
+     *
+     * @return The post processor
+     */
+    @Bean
+    static BeanPostProcessor lazyConnectionDataSourceWrapper() {
+        return new LazyConnectionDataSourceWrapper();
+    }
+
+    /**
+     * Sets the derived pool size, unless the pool has been sized explicitly. The pool is kept at a fixed size, which
+     * avoids opening connections in the middle of a load spike.
+     *
+     * @param dataSource The data source
+     * @param properties The pool properties
+     */
+    static void applyPoolSize(@Nonnull final HikariDataSource dataSource,
+            @Nonnull final DataSourcePoolProperties properties) {
+        if (dataSource.getMaximumPoolSize() > 0) {
+            return;
+        }
+        final var size = poolSize(properties);
+        dataSource.setMaximumPoolSize(size);
+        if (dataSource.getMinimumIdle() < 0) {
+            dataSource.setMinimumIdle(size);
+        }
+        LOG.info("Derived a connection pool size of {} for a request concurrency of {}", size,
+                properties.getRequestConcurrency());
+    }
+
+    /**
+     * Derives the pool size.
+     *
+     * @param properties The pool properties
+     * @return The pool size
+     */
+    static int poolSize(@Nonnull final DataSourcePoolProperties properties) {
+        final var derived = (int) Math.ceil(properties.getRequestConcurrency() * properties.getConnectionHoldRatio());
+        return Math.max(properties.getMinimumSize(), Math.min(properties.getMaximumSize(), derived));
+    }
+
+    private static final class LazyConnectionDataSourceWrapper implements BeanPostProcessor, PriorityOrdered {
+
+        @Override
+        public Object postProcessAfterInitialization(@Nonnull final Object bean, @Nonnull final String beanName) {
+            if (bean instanceof HikariDataSource dataSource) {
+                // the defaults are set up front, otherwise the proxy would open a connection to determine them
+                final var proxy = new LazyConnectionDataSourceProxy();
+                proxy.setTargetDataSource(dataSource);
+                proxy.setDefaultAutoCommit(dataSource.isAutoCommit());
+                proxy.setDefaultTransactionIsolationName(dataSource.getTransactionIsolation() != null
+                        ? dataSource.getTransactionIsolation() : "TRANSACTION_READ_COMMITTED");
+                proxy.afterPropertiesSet();
+                return proxy;
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
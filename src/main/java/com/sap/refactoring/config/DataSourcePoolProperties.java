@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Sizing of the JDBC connection pool. Unless {@code spring.datasource.hikari.maximum-pool-size} is set explicitly, the
+ * pool size is derived from the number of concurrently processed requests and the share of a request's time during
+ * which it holds a connection.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "users.datasource-pool")
+public class DataSourcePoolProperties {
+
+    /**
+     * The number of requests processed concurrently, i.e. the number of request threads.
+     */
+    private int requestConcurrency = 200;
+
+    /**
+     * The share of a request's processing time during which it holds a database connection, between 0 and 1.
+     */
+    private double connectionHoldRatio = 0.1;
+
+    /**
+     * Lower bound for the derived pool size.
+     */
+    private int minimumSize = 4;
+
+    /**
+     * Upper bound for the derived pool size, which should not exceed what the database server can process in parallel.
+     */
+    private int maximumSize = 50;
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.sap.refactoring.users.User;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.UUID;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import org.hibernate.cache.internal.SimpleCacheKeysFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.jcache.MissingCacheStrategy;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Provides the Caffeine backed JCache {@link CacheManager} for the Hibernate second-level cache, with one bounded
+ * region for the {@link User} entities, their roles, and the query results each.
+ */
+@Configuration(proxyBeanMethods = false)
+public class SecondLevelCacheConfiguration {
+
+    static final String USER_REGION = User.class.getName();
+    static final String ROLES_REGION = User.class.getName() + ".roles";
+
+    /**
+     * Creates the cache manager and its regions.
+     *
+     * @param properties The cache properties
+     * @return The cache manager
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager(final SecondLevelCacheProperties properties) {
+        final var provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        // each application context gets its own cache manager, even when several share a class loader (e.g. in tests)
+        final var uri = URI.create("users-second-level-cache:" + UUID.randomUUID());
+        final var cacheManager = provider.getCacheManager(uri, getClass().getClassLoader());
+        final var expireAfterWrite = OptionalLong.of(properties.getExpireAfterWrite().toNanos());
+
+        cacheManager.createCache(USER_REGION, region(properties.getMaximumSize(), expireAfterWrite));
+        cacheManager.createCache(ROLES_REGION, region(properties.getMaximumSize(), expireAfterWrite));
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                region(properties.getQueryMaximumSize(), expireAfterWrite));
+        // the update timestamps must neither expire nor be evicted, otherwise stale query results could be returned
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                region(null, OptionalLong.empty()));
+        return cacheManager;
+    }
+
+    /**
+     * Hands the cache manager to Hibernate, with a region factory keying the cached entities by id.
+     *
+     * @param secondLevelCacheManager The cache manager
+     * @return The customizer
+     */
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(final CacheManager secondLevelCacheManager) {
+        return hibernateProperties -> {
+            hibernateProperties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+            hibernateProperties.put(ConfigSettings.MISSING_CACHE_STRATEGY,
+                    MissingCacheStrategy.FAIL.getExternalRepresentation());
+            // the ids are unique across tenants, and each region holds a single type: the ids alone are sufficient
+            // keys, which unlike the default keys do not include the tenant, so that users can be evicted by id alone
+            hibernateProperties.put(AvailableSettings.CACHE_REGION_FACTORY,
+                    new JCacheRegionFactory(SimpleCacheKeysFactory.INSTANCE));
+        };
+    }
+
+    private static CaffeineConfiguration<Object, Object> region(final Long maximumSize,
+            final OptionalLong expireAfterWrite) {
+        final var configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(maximumSize != null ? OptionalLong.of(maximumSize) : OptionalLong.empty());
+        configuration.setExpireAfterWrite(expireAfterWrite);
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.config;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the Hibernate second-level and query cache regions.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "users.second-level-cache")
+public class SecondLevelCacheProperties {
+
+    /**
+     * The maximum number of users, and of role collections, kept in the cache.
+     */
+    private long maximumSize = 100_000L;
+
+    /**
+     * The maximum number of cached query results.
+     */
+    private long queryMaximumSize = 10_000L;
+
+    /**
+     * The time after which cached entries expire, which bounds the staleness of data changed outside the application.
+     */
+    private Duration expireAfterWrite = Duration.ofMinutes(10);
+}
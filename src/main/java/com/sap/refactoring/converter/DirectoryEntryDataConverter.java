@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.converter;
+
+import com.sap.refactoring.data.DirectoryEntryData;
+import com.sap.refactoring.directory.UserDirectoryEntry;
+import jakarta.annotation.Nonnull;
+import org.springframework.stereotype.Component;
+
+/**
+ * Converts a {@link UserDirectoryEntry} into a {@link DirectoryEntryData} DTO.
+ */
+@Component
+public class DirectoryEntryDataConverter implements Converter<UserDirectoryEntry, DirectoryEntryData> {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nonnull
+    @Override
+    public DirectoryEntryData convert(@Nonnull final UserDirectoryEntry entry) {
+        final var target = new DirectoryEntryData();
+        target.setId(entry.id());
+        target.setEmail(entry.email());
+        target.setRoles(entry.roles());
+        return target;
+    }
+}
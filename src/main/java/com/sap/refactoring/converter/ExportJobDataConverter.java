@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.converter;
+
+import com.sap.refactoring.data.ExportJobData;
+import com.sap.refactoring.service.export.ExportJob;
+import jakarta.annotation.Nonnull;
+import org.springframework.stereotype.Component;
+
+/**
+ * Converts an {@link ExportJob} into an {@link ExportJobData} DTO.
+ */
+@Component
+public class ExportJobDataConverter implements Converter<ExportJob, ExportJobData> {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nonnull
+    @Override
+    public ExportJobData convert(@Nonnull final ExportJob job) {
+        final var target = new ExportJobData();
+        target.setName(job.getName());
+        target.setFormat(job.getFormat().name());
+        target.setGzip(job.isGzip());
+        target.setFile(job.getFile().toString());
+        target.setState(job.getState().name());
+        target.setCompletedChunks(job.getCompletedChunks().get());
+        target.setTotalChunks(job.getTotalChunks());
+        target.setExportedUsers(job.getExportedUsers().get());
+        target.setError(job.getError());
+        return target;
+    }
+}
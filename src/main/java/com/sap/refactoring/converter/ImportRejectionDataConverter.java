@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.converter;
+
+import com.sap.refactoring.data.ImportRejectionData;
+import com.sap.refactoring.users.UserBulkDao.Rejection;
+import jakarta.annotation.Nonnull;
+import org.springframework.stereotype.Component;
+
+/**
+ * Converts a {@link Rejection} into an {@link ImportRejectionData} DTO.
+ */
+@Component
+public class ImportRejectionDataConverter implements Converter<Rejection, ImportRejectionData> {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nonnull
+    @Override
+    public ImportRejectionData convert(@Nonnull final Rejection rejection) {
+        final var target = new ImportRejectionData();
+        target.setLine(rejection.line());
+        target.setEmail(rejection.email());
+        target.setReason(rejection.reason());
+        return target;
+    }
+}
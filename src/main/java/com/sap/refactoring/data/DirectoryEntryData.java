@@ -0,0 +1,21 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.data;
+
+import java.util.List;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * User directory entry DTO.
+ */
+@Getter
+@Setter
+@EqualsAndHashCode
+public class DirectoryEntryData {
+    private Long id;
+    private String email;
+    private List<String> roles;
+}
@@ -15,4 +15,5 @@ import lombok.Setter;
 public class Error {
     private Date timestamp;
     private String message;
+    private String correlationId;
 }
@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.data;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * User export progress DTO.
+ */
+@Getter
+@Setter
+@EqualsAndHashCode
+public class ExportJobData {
+    private String name;
+    private String format;
+    private boolean gzip;
+    private String file;
+    private String state;
+    private int completedChunks;
+    private int totalChunks;
+    private long exportedUsers;
+    private String error;
+}
@@ -0,0 +1,20 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.data;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Rejected import row DTO.
+ */
+@Getter
+@Setter
+@EqualsAndHashCode
+public class ImportRejectionData {
+    private long line;
+    private String email;
+    private String reason;
+}
@@ -0,0 +1,22 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.data;
+
+import java.util.List;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * User import result DTO.
+ */
+@Getter
+@Setter
+@EqualsAndHashCode
+public class ImportResultData {
+    private long records;
+    private long imported;
+    private long rejected;
+    private List<ImportRejectionData> rejections;
+}
@@ -0,0 +1,20 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.data;
+
+import java.util.List;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * User search result DTO.
+ */
+@Getter
+@Setter
+@EqualsAndHashCode
+public class SearchResultData {
+    private List<UserData> users;
+    private String next;
+}
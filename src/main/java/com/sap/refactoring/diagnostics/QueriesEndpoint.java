@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.diagnostics;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint ({@code /actuator/queries}) reporting the statement totals of the {@link QueryInspector}.
+ */
+@Component
+@Endpoint(id = "queries")
+public class QueriesEndpoint {
+
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final QueryInspector inspector;
+
+    /**
+     * Constructor.
+     *
+     * @param inspector The query inspector
+     */
+    public QueriesEndpoint(final QueryInspector inspector) {
+        this.inspector = inspector;
+    }
+
+    /**
+     * Reports the statements and endpoints with the highest total execution time, and the recent slow statements.
+     *
+     * @param limit The maximum number of statements and endpoints, optional
+     * @return The report
+     */
+    @ReadOperation
+    public QueryInspector.Report queries(@Nullable final Integer limit) {
+        return inspector.report(limit != null ? limit : DEFAULT_LIMIT);
+    }
+
+    /**
+     * Discards all totals.
+     */
+    @DeleteOperation
+    public void reset() {
+        inspector.reset();
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.diagnostics;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the maximum number of SQL statements a request handler may execute. A request exceeding the budget is
+ * logged. If {@code users.query-diagnostics.enforce-budgets} is set (e.g. in tests), the statement exceeding the budget
+ * fails before it is executed.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface QueryBudget {
+
+    /**
+     * The maximum number of statements.
+     *
+     * @return The maximum number of statements
+     */
+    int statements();
+}
@@ -0,0 +1,20 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.diagnostics;
+
+/**
+ * Thrown instead of executing a statement which exceeds the {@link QueryBudget} of its request, if budgets are
+ * enforced.
+ */
+public class QueryBudgetExceededException extends IllegalStateException {
+
+    /**
+     * Constructor.
+     *
+     * @param message The message
+     */
+    public QueryBudgetExceededException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.diagnostics;
+
+import jakarta.annotation.Nonnull;
+import javax.sql.DataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Wraps the data source so that the {@link QueryInspector} sees every statement, and registers the
+ * {@link QueryDiagnosticsFilter}.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "users.query-diagnostics", name = "enabled", havingValue = "true",
+        matchIfMissing = true)
+public class QueryDiagnosticsConfiguration {
+
+    /**
+     * Wraps any data source in a proxy notifying the {@link QueryInspector}. The wrapped data source remains
+     * accessible through {@link DataSource#unwrap(Class)}, e.g. for the connection pool metrics.
+     *
+     * @param inspector The query inspector
+     * @return The post processor
+     */
+    @Bean
+    static BeanPostProcessor queryInspectingDataSourceWrapper(final ObjectProvider<QueryInspector> inspector) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(@Nonnull final Object bean, @Nonnull final String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create(beanName, dataSource)
+                            .listener(inspector.getObject())
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Registers the filter recording the statements of each request, right after the one assigning correlation ids.
+     *
+     * @param inspector  The query inspector
+     * @param properties The diagnostics properties
+     * @return The filter registration
+     */
+    @Bean
+    FilterRegistrationBean<QueryDiagnosticsFilter> queryDiagnosticsFilter(final QueryInspector inspector,
+            final QueryDiagnosticsProperties properties) {
+        final var registration = new FilterRegistrationBean<>(new QueryDiagnosticsFilter(inspector, properties));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+}
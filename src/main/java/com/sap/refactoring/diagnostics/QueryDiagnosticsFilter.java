@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.diagnostics;
+
+import jakarta.annotation.Nonnull;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Records the statements executed while handling a request with the {@link QueryInspector}, checks them against the
+ * {@link QueryBudget} of the handler, and in debug mode sends them as response headers. The headers are added right
+ * before the response is committed, so statements executed while the body is streamed are not included.
+ * <p>
+ * A request exceeding its budget is logged once it has completed. If budgets are enforced, the inspector fails the
+ * statement exceeding the budget before it is executed, so the request fails while its response can still report
+ * the error.
+ */
+public class QueryDiagnosticsFilter extends OncePerRequestFilter {
+
+    /**
+     * The number of statements executed while handling the request.
+     */
+    public static final String QUERY_COUNT_HEADER = "X-Query-Count";
+
+    /**
+     * The total execution time of these statements, in milliseconds.
+     */
+    public static final String QUERY_TIME_HEADER = "X-Query-Time-Ms";
+
+    private static final Logger LOG = LoggerFactory.getLogger(QueryDiagnosticsFilter.class);
+
+    private final QueryInspector inspector;
+    private final QueryDiagnosticsProperties properties;
+
+    /**
+     * Constructor.
+     *
+     * @param inspector  The query inspector
+     * @param properties The diagnostics properties
+     */
+    public QueryDiagnosticsFilter(final QueryInspector inspector, final QueryDiagnosticsProperties properties) {
+        this.inspector = inspector;
+        this.properties = properties;
+    }
+
+    @Override
+    protected void doFilterInternal(@Nonnull final HttpServletRequest request,
+            @Nonnull final HttpServletResponse response, @Nonnull final FilterChain filterChain)
+            throws ServletException, IOException {
+        final var stats = inspector.begin();
+        stats.setBudget(() -> getBudget(request));
+        try {
+            final var wrapper = properties.isHeaders() ? new HeaderWritingResponse(response, stats) : null;
+            filterChain.doFilter(request, wrapper != null ? wrapper : response);
+            if (wrapper != null) {
+                // responses without a body may not have been committed yet
+                wrapper.writeHeaders();
+            }
+        } finally {
+            final var pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            final var endpoint = request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+            final var budget = stats.getBudget();
+            final var exceeded = budget != null
+                    && (stats.isBudgetExceeded() || stats.getStatements() > budget.statements());
+            if (exceeded) {
+                LOG.warn("{} exceeded its budget of {} statements: {}", endpoint, budget.statements(),
+                        String.join("; ", stats.getSql()));
+            }
+            inspector.end(endpoint, exceeded);
+        }
+    }
+
+    private static QueryBudget getBudget(final HttpServletRequest request) {
+        final var handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+        return handler instanceof HandlerMethod method ? method.getMethodAnnotation(QueryBudget.class) : null;
+    }
+
+    /**
+     * Adds the statistics as headers, before the response is committed.
+     */
+    private static final class HeaderWritingResponse extends HttpServletResponseWrapper {
+
+        private final QueryStats stats;
+        private boolean written;
+
+        HeaderWritingResponse(final HttpServletResponse response, final QueryStats stats) {
+            super(response);
+            this.stats = stats;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeaders();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeaders();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeHeaders();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(final int sc, final String msg) throws IOException {
+            writeHeaders();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(final int sc) throws IOException {
+            writeHeaders();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(final String location) throws IOException {
+            writeHeaders();
+            super.sendRedirect(location);
+        }
+
+        private void writeHeaders() {
+            if (!written && !isCommitted()) {
+                written = true;
+                setHeader(QUERY_COUNT_HEADER, String.valueOf(stats.getStatements()));
+                setHeader(QUERY_TIME_HEADER, String.format(Locale.ROOT, "%.3f", stats.getMillis()));
+            }
+        }
+    }
+}
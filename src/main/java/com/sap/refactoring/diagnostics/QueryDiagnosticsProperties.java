@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.diagnostics;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the SQL statement inspection, see {@link QueryInspector}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "users.query-diagnostics")
+public class QueryDiagnosticsProperties {
+
+    /**
+     * Whether the data source is wrapped to inspect the executed statements.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Debug mode: whether the statement count and time of each request are sent as the {@code X-Query-Count} and
+     * {@code X-Query-Time-Ms} response headers.
+     */
+    private boolean headers = false;
+
+    /**
+     * Statements taking at least this long are logged, and listed by the {@code queries} Actuator endpoint.
+     */
+    private Duration slowThreshold = Duration.ofMillis(50);
+
+    /**
+     * Whether the statement exceeding the {@link QueryBudget} of a request fails, rather than the request only being
+     * logged. Meant for tests.
+     */
+    private boolean enforceBudgets = false;
+
+    /**
+     * The maximum number of distinct statements for which totals are kept; further statements are counted as
+     * {@value QueryInspector#OTHER_STATEMENTS}.
+     */
+    private int maxStatements = 500;
+
+    /**
+     * The number of recent slow statements kept for the {@code queries} Actuator endpoint.
+     */
+    private int maxSlowStatements = 100;
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.diagnostics;
+
+import com.sap.refactoring.diagnostics.QueryStats.SlowStatement;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records every SQL statement executed through the wrapped data source (see {@link QueryDiagnosticsConfiguration}):
+ * per request, for the thread handling it, and in totals per distinct statement and per endpoint, which are reported
+ * by the {@link QueriesEndpoint}. Slow statements are logged with the types of their bind parameters, but never with
+ * their values.
+ */
+@Component
+public class QueryInspector implements QueryExecutionListener {
+
+    /**
+     * The key under which statements beyond the configured maximum number of distinct statements are counted.
+     */
+    public static final String OTHER_STATEMENTS = "<other>";
+
+    private static final Logger LOG = LoggerFactory.getLogger(QueryInspector.class);
+    private static final String START = QueryInspector.class.getName() + ".start";
+
+    private final QueryDiagnosticsProperties properties;
+    private final ThreadLocal<QueryStats> current = new ThreadLocal<>();
+    private final Map<String, Totals> statements = new ConcurrentHashMap<>();
+    private final Map<String, Totals> endpoints = new ConcurrentHashMap<>();
+    private final Deque<SlowStatement> slowStatements = new ArrayDeque<>();
+
+    /**
+     * Constructor.
+     *
+     * @param properties The diagnostics properties
+     */
+    public QueryInspector(final QueryDiagnosticsProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Starts recording the statements of a request on the current thread.
+     *
+     * @return The statistics of the request
+     */
+    @Nonnull
+    public QueryStats begin() {
+        final var stats = new QueryStats();
+        current.set(stats);
+        return stats;
+    }
+
+    /**
+     * Stops recording the statements of a request on the current thread, and adds them to the endpoint totals.
+     *
+     * @param endpoint       The endpoint, e.g. {@code GET /users/{id}}
+     * @param budgetExceeded Whether the request has exceeded its {@link QueryBudget}
+     */
+    public void end(@Nonnull final String endpoint, final boolean budgetExceeded) {
+        final var stats = current.get();
+        current.remove();
+        if (stats != null) {
+            endpoints.computeIfAbsent(endpoint, key -> new Totals())
+                    .add(stats.getStatements(), stats.getNanos(), budgetExceeded);
+            LOG.debug("{} executed {} statements in {} ms", endpoint, stats.getStatements(), stats.getMillis());
+        }
+    }
+
+    /**
+     * Gets the statistics of the request on the current thread.
+     *
+     * @return The statistics, or null if no request is recorded
+     */
+    @Nullable
+    public QueryStats current() {
+        return current.get();
+    }
+
+    /**
+     * Fails a statement which would exceed the {@link QueryBudget} of the request, before it is executed, if budgets
+     * are enforced.
+     *
+     * @param execInfo      The execution
+     * @param queryInfoList The statements
+     * @throws QueryBudgetExceededException If the request has used up its budget
+     */
+    @Override
+    public void beforeQuery(final ExecutionInfo execInfo, final List<QueryInfo> queryInfoList) {
+        final var stats = current.get();
+        if (stats != null && properties.isEnforceBudgets()) {
+            final var budget = stats.getBudget();
+            if (budget != null && stats.getStatements() >= budget.statements()) {
+                stats.setBudgetExceeded(true);
+                final var sql = queryInfoList.stream().map(QueryInfo::getQuery).collect(Collectors.joining("; "));
+                throw new QueryBudgetExceededException(String.format(Locale.ROOT,
+                        "The budget of %d statements does not allow %s after %s", budget.statements(), sql,
+                        String.join("; ", stats.getSql())));
+            }
+        }
+        execInfo.addCustomValue(START, System.nanoTime());
+    }
+
+    @Override
+    public void afterQuery(final ExecutionInfo execInfo, final List<QueryInfo> queryInfoList) {
+        final var start = execInfo.getCustomValue(START, Long.class);
+        final var elapsed = start != null ? System.nanoTime() - start : 0L;
+        final var sql = queryInfoList.stream().map(QueryInfo::getQuery).collect(Collectors.joining("; "));
+
+        final var stats = current.get();
+        if (stats != null) {
+            stats.add(sql, elapsed);
+        }
+        var totals = statements.get(sql);
+        if (totals == null) {
+            totals = statements.size() < properties.getMaxStatements()
+                    ? statements.computeIfAbsent(sql, key -> new Totals())
+                    : statements.computeIfAbsent(OTHER_STATEMENTS, key -> new Totals());
+        }
+        totals.add(1, elapsed, false);
+
+        if (elapsed >= properties.getSlowThreshold().toNanos()) {
+            final var parameters = queryInfoList.isEmpty() ? "()" : parameters(queryInfoList.get(0));
+            final var slow = new SlowStatement(sql, parameters, elapsed / 1_000_000d);
+            LOG.warn("Slow statement took {} ms: {} with parameters {}", slow.millis(), sql, parameters);
+            if (stats != null) {
+                stats.addSlow(slow);
+            }
+            synchronized (slowStatements) {
+                slowStatements.addFirst(slow);
+                while (slowStatements.size() > properties.getMaxSlowStatements()) {
+                    slowStatements.removeLast();
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a report of the totals.
+     *
+     * @param limit The maximum number of statements and endpoints, the ones with the highest total time first
+     * @return The report
+     */
+    @Nonnull
+    public Report report(final int limit) {
+        final List<SlowStatement> slow;
+        synchronized (slowStatements) {
+            slow = List.copyOf(slowStatements);
+        }
+        return new Report(top(statements, limit), top(endpoints, limit), slow);
+    }
+
+    /**
+     * Discards all totals.
+     */
+    public void reset() {
+        statements.clear();
+        endpoints.clear();
+        synchronized (slowStatements) {
+            slowStatements.clear();
+        }
+    }
+
+    /**
+     * Describes the types of the bind parameters of a statement, e.g. {@code (Long, String)} or
+     * {@code 10 x (Long, String)} for a batch.
+     *
+     * @param query The query
+     * @return The description
+     */
+    static String parameters(@Nonnull final QueryInfo query) {
+        final var sets = query.getParametersList();
+        if (sets.isEmpty()) {
+            return "()";
+        }
+        final var shape = sets.get(0).stream()
+                .map(QueryInspector::parameterType)
+                .collect(Collectors.joining(", ", "(", ")"));
+        return sets.size() > 1 ? sets.size() + " x " + shape : shape;
+    }
+
+    private static String parameterType(final ParameterSetOperation operation) {
+        if (ParameterSetOperation.isSetNullParameterOperation(operation)) {
+            return "null";
+        }
+        final var args = operation.getArgs();
+        return args.length > 1 && args[1] != null ? args[1].getClass().getSimpleName() : "null";
+    }
+
+    private static List<QueryTotals> top(final Map<String, Totals> totals, final int limit) {
+        return totals.entrySet().stream()
+                .map(entry -> entry.getValue().report(entry.getKey()))
+                .sorted(Comparator.comparingDouble(QueryTotals::millis).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    private static final class Totals {
+
+        private final LongAdder executions = new LongAdder();
+        private final LongAdder statements = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final AtomicLong maxStatements = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final LongAdder budgetExceeded = new LongAdder();
+
+        void add(final int statementCount, final long elapsedNanos, final boolean exceeded) {
+            executions.increment();
+            statements.add(statementCount);
+            nanos.add(elapsedNanos);
+            maxStatements.accumulateAndGet(statementCount, Math::max);
+            maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+            if (exceeded) {
+                budgetExceeded.increment();
+            }
+        }
+
+        QueryTotals report(final String name) {
+            return new QueryTotals(name, executions.sum(), statements.sum(), maxStatements.get(),
+                    nanos.sum() / 1_000_000d, maxNanos.get() / 1_000_000d, budgetExceeded.sum());
+        }
+    }
+
+    /**
+     * A report of the totals.
+     *
+     * @param statements     The statements with the highest total execution time
+     * @param endpoints      The endpoints with the highest total execution time
+     * @param slowStatements The most recent slow statements
+     */
+    public record Report(List<QueryTotals> statements, List<QueryTotals> endpoints,
+            List<SlowStatement> slowStatements) {
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.diagnostics;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * The statements executed during a single request. Only accessed by the thread handling the request.
+ */
+@Getter
+public class QueryStats {
+
+    private static final int MAX_STATEMENTS = 50;
+    private static final int MAX_SLOW_STATEMENTS = 10;
+
+    private int statements;
+    private long nanos;
+    private final List<String> sql = new ArrayList<>();
+    private final List<SlowStatement> slowStatements = new ArrayList<>();
+    // the budget is only known once the handler of the request has been determined
+    @Getter(AccessLevel.NONE)
+    private Supplier<QueryBudget> budget = () -> null;
+    @Setter(AccessLevel.PACKAGE)
+    private boolean budgetExceeded;
+
+    void add(final String statement, final long elapsedNanos) {
+        statements++;
+        nanos += elapsedNanos;
+        if (sql.size() < MAX_STATEMENTS) {
+            sql.add(statement);
+        }
+    }
+
+    void addSlow(final SlowStatement statement) {
+        if (slowStatements.size() < MAX_SLOW_STATEMENTS) {
+            slowStatements.add(statement);
+        }
+    }
+
+    /**
+     * Gets the budget of the request.
+     *
+     * @return The budget, or null if the request has none or its handler is not known yet
+     */
+    @Nullable
+    public QueryBudget getBudget() {
+        return budget.get();
+    }
+
+    void setBudget(@Nonnull final Supplier<QueryBudget> budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Gets the total time spent executing statements.
+     *
+     * @return The time in milliseconds
+     */
+    public double getMillis() {
+        return nanos / 1_000_000d;
+    }
+
+    /**
+     * A statement which took at least the slow threshold.
+     *
+     * @param sql        The SQL
+     * @param parameters The types of the bind parameters, e.g. {@code (Long, String)}
+     * @param millis     The execution time in milliseconds
+     */
+    public record SlowStatement(String sql, String parameters, double millis) {
+    }
+}
@@ -0,0 +1,19 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.diagnostics;
+
+/**
+ * The totals of a statement or an endpoint, as reported by the {@link QueryInspector}.
+ *
+ * @param name           The SQL of the statement, or the endpoint
+ * @param executions     The number of executions of the statement, or requests to the endpoint
+ * @param statements     The total number of statements
+ * @param maxStatements  The maximum number of statements of a single request
+ * @param millis         The total execution time in milliseconds
+ * @param maxMillis      The maximum execution time of a single statement or request in milliseconds
+ * @param budgetExceeded The number of requests which exceeded their {@link QueryBudget}
+ */
+public record QueryTotals(String name, long executions, long statements, long maxStatements, double millis,
+        double maxMillis, long budgetExceeded) {
+}
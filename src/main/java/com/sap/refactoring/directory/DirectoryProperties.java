@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.directory;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the {@link UserDirectory}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "users.directory")
+public class DirectoryProperties {
+
+    /**
+     * Whether the directory is built. If not, the directory lookups read from the database.
+     */
+    private boolean enabled = true;
+
+    /**
+     * The interval of the full rebuilds, which fold the changes collected since the previous rebuild into the
+     * off-heap snapshot.
+     */
+    private Duration refreshInterval = Duration.ofMinutes(10);
+
+    /**
+     * The maximum ratio of users to slots of the hash indexes. Lower values shorten the probe sequences at the expense
+     * of memory.
+     */
+    private double loadFactor = 0.5;
+
+    /**
+     * The number of rows fetched from the database at once while building the directory.
+     */
+    private int fetchSize = 10_000;
+}
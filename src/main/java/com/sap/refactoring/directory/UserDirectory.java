@@ -0,0 +1,379 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.directory;
+
+import com.sap.refactoring.service.UserChangedEvent;
+import com.sap.refactoring.users.PersistenceGuard;
+import com.sap.refactoring.users.User;
+import com.sap.refactoring.users.UserBulkDao;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * A read-only directory resolving emails and ids to users and their roles, for lookups on hot paths (e.g.
+ * authentication) which must neither hit the database nor allocate per user on the heap. The directory holds the users
+ * of all tenants, each lookup is limited to the users of one tenant.
+ * <p>
+ * All users are held in an off-heap {@link UserDirectorySnapshot}, which is rebuilt periodically. Users changed since
+ * the snapshot was built are re-read after each {@link UserChangedEvent}, local or remote, and kept in a small on-heap
+ * overlay which takes precedence over the snapshot. Each change is numbered, and a rebuild drops the changes numbered
+ * before it started, as it has read them from the database already.
+ * <p>
+ * The changed users are re-read on a thread of the directory, through the {@link PersistenceGuard}, so that the thread
+ * which committed a change does not wait for it. Until then, lookups which resolve to a changed user read from the
+ * database; a user is only found by a new email once the change has been applied. If re-reading a user fails, the
+ * directory is stale until it has been rebuilt.
+ * <p>
+ * While the directory is stale (before the first build completes, or after an event for all users until the next
+ * rebuild completes), lookups read from the database. Every read from the database goes through the
+ * {@link PersistenceGuard}, so lookups fail fast while the database is failing or slow.
+ */
+@Component
+public class UserDirectory implements SmartLifecycle {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UserDirectory.class);
+
+    private final UserBulkDao userBulkDao;
+    private final PersistenceGuard persistenceGuard;
+    private final DirectoryProperties properties;
+    private final TransactionTemplate snapshotTransaction;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private final Map<Long, Change> changesById = new ConcurrentHashMap<>();
+    private final Map<TenantEmail, Change> changesByEmail = new ConcurrentHashMap<>();
+    // the number of changes of each user which are yet to be applied
+    private final Map<Long, Integer> pendingChanges = new ConcurrentHashMap<>();
+    private volatile UserDirectorySnapshot snapshot;
+    private volatile long staleSince;
+    private volatile boolean stale = true;
+    private volatile ScheduledExecutorService executor;
+    private volatile ExecutorService changeExecutor;
+
+    /**
+     * Constructor.
+     *
+     * @param userBulkDao        The bulk user dao
+     * @param persistenceGuard   The guard of the database, through which users are read
+     * @param properties         The directory properties
+     * @param transactionManager The transaction manager
+     * @param meterRegistry      The meter registry for the size of the directory
+     */
+    public UserDirectory(final UserBulkDao userBulkDao, final PersistenceGuard persistenceGuard,
+            final DirectoryProperties properties, final PlatformTransactionManager transactionManager,
+            final MeterRegistry meterRegistry) {
+        this.userBulkDao = userBulkDao;
+        this.persistenceGuard = persistenceGuard;
+        this.properties = properties;
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setReadOnly(true);
+        // the count, the role names and the users must be read from the same snapshot of the database
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+
+        Gauge.builder("users.directory.users", this, directory -> directory.snapshotSize(false))
+                .description("The number of users in the off-heap snapshot")
+                .register(meterRegistry);
+        Gauge.builder("users.directory.memory", this, directory -> directory.snapshotSize(true))
+                .description("The off-heap memory used by the snapshot")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("users.directory.changes", changesById, Map::size)
+                .description("The number of users changed since the snapshot was built")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Finds a user of a tenant by email.
+     *
+     * @param tenantId The tenant id
+     * @param email    The email
+     * @return The user, or null if not found in the tenant
+     */
+    @Nullable
+    public UserDirectoryEntry findByEmail(@Nonnull final String tenantId, @Nonnull final String email) {
+        if (stale) {
+            return readByEmail(tenantId, email);
+        }
+        final var entry = lookupByEmail(tenantId, email);
+        // the email of a user whose change is yet to be applied may not be current
+        return entry != null && pendingChanges.containsKey(entry.id()) ? readByEmail(tenantId, email) : entry;
+    }
+
+    /**
+     * Finds a user of a tenant by id.
+     *
+     * @param tenantId The tenant id
+     * @param id       The id
+     * @return The user, or null if not found in the tenant
+     */
+    @Nullable
+    public UserDirectoryEntry findById(@Nonnull final String tenantId, final long id) {
+        if (stale || pendingChanges.containsKey(id)) {
+            return readById(tenantId, id);
+        }
+        final var latest = changesById.get(id);
+        if (latest != null) {
+            return tenantId.equals(latest.tenantId()) ? latest.entry() : null;
+        }
+        return snapshot.findById(tenantId, id);
+    }
+
+    @Nullable
+    private UserDirectoryEntry lookupByEmail(final String tenantId, final String email) {
+        // the overlay may be indexed by an email the user does not have anymore, the latest change by id is decisive
+        final var changed = changesByEmail.get(new TenantEmail(tenantId, email));
+        if (changed != null) {
+            final var latest = changesById.get(changed.id());
+            if (latest != null && latest.entry() != null && tenantId.equals(latest.tenantId())
+                    && email.equals(latest.entry().email())) {
+                return latest.entry();
+            }
+        }
+        final var entry = snapshot.findByEmail(tenantId, email);
+        if (entry == null) {
+            return null;
+        }
+        final var latest = changesById.get(entry.id());
+        if (latest == null) {
+            return entry;
+        }
+        return latest.entry() != null && email.equals(latest.entry().email()) ? latest.entry() : null;
+    }
+
+    @Nullable
+    private UserDirectoryEntry readById(final String tenantId, final long id) {
+        return persistenceGuard.execute(() -> userBulkDao.findUser(id))
+                .filter(user -> tenantId.equals(user.getTenantId()))
+                .map(UserDirectory::toEntry)
+                .orElse(null);
+    }
+
+    @Nullable
+    private UserDirectoryEntry readByEmail(final String tenantId, final String email) {
+        return persistenceGuard.execute(() -> userBulkDao.findUserByEmail(tenantId, email))
+                .map(UserDirectory::toEntry)
+                .orElse(null);
+    }
+
+    /**
+     * Checks if the lookups are answered by the directory, rather than the database.
+     *
+     * @return True if the directory is up-to-date
+     */
+    public boolean isReady() {
+        return !stale;
+    }
+
+    /**
+     * Schedules re-reading a changed user, once the change has been committed. For an event about all users, the
+     * directory is rebuilt. Runs after the other listeners, so that the eviction of caches comes first.
+     *
+     * @param event The event
+     */
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(@Nonnull final UserChangedEvent event) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (event.isAll()) {
+            staleSince = sequence.incrementAndGet();
+            stale = true;
+            scheduleRebuild();
+            return;
+        }
+
+        final var current = changeExecutor;
+        if (current == null) {
+            return;
+        }
+        final long id = event.id();
+        pendingChanges.merge(id, 1, Integer::sum);
+        try {
+            current.execute(() -> applyChange(id));
+        } catch (final RejectedExecutionException ex) {
+            // the directory is stopping
+            removePendingChange(id);
+        }
+    }
+
+    /**
+     * Checks if any change is yet to be applied.
+     *
+     * @return True if a changed user is yet to be re-read
+     */
+    boolean hasPendingChanges() {
+        return !pendingChanges.isEmpty();
+    }
+
+    /**
+     * Rebuilds the snapshot from the database.
+     */
+    public void rebuild() {
+        rebuildPending.set(false);
+        final var start = sequence.incrementAndGet();
+        final var started = System.nanoTime();
+        final var built = snapshotTransaction.execute(status -> build());
+        snapshot = built;
+        changesById.values().removeIf(change -> change.number() < start);
+        changesByEmail.values().removeIf(change -> change.number() < start);
+        if (staleSince < start) {
+            stale = false;
+        }
+        LOG.info("Built the user directory with {} users in {} ms, using {} bytes off-heap", built.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), built.memoryBytes());
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        final var thread = Executors.defaultThreadFactory();
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final var t = thread.newThread(runnable);
+            t.setName("user-directory");
+            t.setDaemon(true);
+            return t;
+        });
+        // the changes are applied on a thread of their own, so they do not wait for a rebuild
+        changeExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            final var t = thread.newThread(runnable);
+            t.setName("user-directory-changes");
+            t.setDaemon(true);
+            return t;
+        });
+        final var interval = properties.getRefreshInterval().toMillis();
+        executor.scheduleWithFixedDelay(this::rebuildSafely, 0L, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        final var current = executor;
+        executor = null;
+        if (current != null) {
+            current.shutdownNow();
+        }
+        final var currentChanges = changeExecutor;
+        changeExecutor = null;
+        if (currentChanges != null) {
+            currentChanges.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return executor != null;
+    }
+
+    private void applyChange(final long id) {
+        try {
+            // the number is taken before reading, so a higher number always means a read at least as recent
+            final var number = sequence.incrementAndGet();
+            final var user = persistenceGuard.execute(() -> userBulkDao.findUser(id));
+            final var change = new Change(number, id, user.map(User::getTenantId).orElse(null),
+                    user.map(UserDirectory::toEntry).orElse(null));
+            changesById.merge(id, change, (previous, next) -> next.number() > previous.number() ? next : previous);
+            if (change.entry() != null && change.entry().email() != null) {
+                changesByEmail.merge(new TenantEmail(change.tenantId(), change.entry().email()), change,
+                        (previous, next) -> next.number() > previous.number() ? next : previous);
+            }
+        } catch (final RuntimeException ex) {
+            LOG.warn("Failed to re-read the changed user {}, the user directory is rebuilt", id, ex);
+            staleSince = sequence.incrementAndGet();
+            stale = true;
+            scheduleRebuild();
+        } finally {
+            removePendingChange(id);
+        }
+    }
+
+    private void removePendingChange(final long id) {
+        pendingChanges.computeIfPresent(id, (key, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private void scheduleRebuild() {
+        final var current = executor;
+        if (current != null && rebuildPending.compareAndSet(false, true)) {
+            current.execute(this::rebuildSafely);
+        }
+    }
+
+    private void rebuildSafely() {
+        try {
+            rebuild();
+        } catch (final RuntimeException ex) {
+            LOG.error("Failed to build the user directory", ex);
+        }
+    }
+
+    private UserDirectorySnapshot build() {
+        final var count = userBulkDao.countUsers();
+        if (count > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Too many users for the directory: " + count);
+        }
+        final var builder = new UserDirectorySnapshot.Builder((int) count, userBulkDao.getRoleNames(),
+                properties.getLoadFactor());
+        final var range = userBulkDao.getIdRange(null);
+        if (range.isPresent()) {
+            userBulkDao.streamUsers(null, range.get(), properties.getFetchSize(),
+                    user -> builder.add(user.getTenantId(), user.getId(), user.getEmail(), user.getRoles()));
+        }
+        return builder.build();
+    }
+
+    private double snapshotSize(final boolean memory) {
+        final var current = snapshot;
+        if (current == null) {
+            return 0.0;
+        }
+        return memory ? current.memoryBytes() : current.size();
+    }
+
+    private static UserDirectoryEntry toEntry(final User user) {
+        return new UserDirectoryEntry(user.getId(), user.getEmail(),
+                user.getRoles().stream().filter(Objects::nonNull).toList());
+    }
+
+    /**
+     * A user changed since the snapshot was built.
+     *
+     * @param number   The number of the change
+     * @param id       The user id
+     * @param tenantId The tenant of the user, or null if it has been removed
+     * @param entry    The user after the change, or null if it has been removed
+     */
+    private record Change(long number, long id, @Nullable String tenantId, @Nullable UserDirectoryEntry entry) {
+    }
+
+    /**
+     * The key of a changed user by email.
+     *
+     * @param tenantId The tenant id
+     * @param email    The email
+     */
+    private record TenantEmail(String tenantId, String email) {
+    }
+}
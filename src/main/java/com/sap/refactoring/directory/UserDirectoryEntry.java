@@ -0,0 +1,18 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.directory;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.util.List;
+
+/**
+ * The result of a {@link UserDirectory} lookup.
+ *
+ * @param id    The user id
+ * @param email The email, null for users without one
+ * @param roles The roles
+ */
+public record UserDirectoryEntry(long id, @Nullable String email, @Nonnull List<String> roles) {
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.directory;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.util.Assert;
+
+/**
+ * An immutable, off-heap copy of the tenant, email, id and roles of all users, which puts (almost) no load on the
+ * garbage collector regardless of the number of users.
+ * <p>
+ * The users are stored as fixed-size records in a direct buffer: the id, the offset and length of the UTF-8 encoded
+ * email within a second buffer, the tenant as an index into the tenants of the snapshot, and the roles as a bitset over
+ * the role names of the snapshot. The records are found through two open-addressing hash tables with linear probing,
+ * one keyed by tenant and email (storing the hash along with the record number, to skip most email comparisons) and
+ * one keyed by id.
+ */
+final class UserDirectorySnapshot {
+
+    private static final int ID = 0;
+    private static final int EMAIL_OFFSET = 8;
+    private static final int EMAIL_LENGTH = 12;
+    private static final int TENANT = 16;
+    private static final int ROLES = 20;
+    private static final int EMAIL_SLOT = 8;
+    private static final int ID_SLOT = 4;
+
+    private final Map<String, Integer> tenantIndexes;
+    private final String[] roleNames;
+    private final int roleWords;
+    private final int recordSize;
+    private final int size;
+    private final int mask;
+    private final ByteBuffer records;
+    private final ByteBuffer emails;
+    private final ByteBuffer emailIndex;
+    private final ByteBuffer idIndex;
+
+    private UserDirectorySnapshot(final Builder builder) {
+        this.tenantIndexes = builder.tenantIndexes;
+        this.roleNames = builder.roleNames;
+        this.roleWords = builder.roleWords;
+        this.recordSize = builder.recordSize;
+        this.size = builder.size;
+        this.mask = builder.mask;
+        this.records = builder.records;
+        this.emails = builder.emails;
+        this.emailIndex = builder.emailIndex;
+        this.idIndex = builder.idIndex;
+    }
+
+    /**
+     * Gets the number of users.
+     *
+     * @return The number of users
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Gets the size of all off-heap buffers.
+     *
+     * @return The size in bytes
+     */
+    long memoryBytes() {
+        return (long) records.capacity() + emails.capacity() + emailIndex.capacity() + idIndex.capacity();
+    }
+
+    /**
+     * Finds a user of a tenant by id.
+     *
+     * @param tenantId The tenant id
+     * @param id       The id
+     * @return The user, or null if not found in the tenant
+     */
+    @Nullable
+    UserDirectoryEntry findById(@Nonnull final String tenantId, final long id) {
+        for (var slot = hash(id) & mask; ; slot = (slot + 1) & mask) {
+            final var record = idIndex.getInt(slot * ID_SLOT) - 1;
+            if (record < 0) {
+                return null;
+            }
+            if (records.getLong(record * recordSize + ID) == id) {
+                final var tenant = tenantIndexes.get(tenantId);
+                return tenant != null && records.getInt(record * recordSize + TENANT) == tenant ? entry(record) : null;
+            }
+        }
+    }
+
+    /**
+     * Finds a user of a tenant by email.
+     *
+     * @param tenantId The tenant id
+     * @param email    The email
+     * @return The user, or null if not found in the tenant
+     */
+    @Nullable
+    UserDirectoryEntry findByEmail(@Nonnull final String tenantId, @Nonnull final String email) {
+        final var tenant = tenantIndexes.get(tenantId);
+        if (tenant == null) {
+            return null;
+        }
+        final var bytes = email.getBytes(StandardCharsets.UTF_8);
+        final var hash = hash(tenant, bytes);
+        for (var slot = hash & mask; ; slot = (slot + 1) & mask) {
+            final var record = emailIndex.getInt(slot * EMAIL_SLOT + 4) - 1;
+            if (record < 0) {
+                return null;
+            }
+            if (emailIndex.getInt(slot * EMAIL_SLOT) == hash && records.getInt(record * recordSize + TENANT) == tenant
+                    && emailEquals(record, bytes)) {
+                return entry(record);
+            }
+        }
+    }
+
+    private boolean emailEquals(final int record, final byte[] bytes) {
+        final var base = record * recordSize;
+        if (records.getInt(base + EMAIL_LENGTH) != bytes.length) {
+            return false;
+        }
+        final var offset = records.getInt(base + EMAIL_OFFSET);
+        for (int i = 0; i < bytes.length; i++) {
+            if (emails.get(offset + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private UserDirectoryEntry entry(final int record) {
+        final var base = record * recordSize;
+        final var length = records.getInt(base + EMAIL_LENGTH);
+        final byte[] email;
+        if (length >= 0) {
+            email = new byte[length];
+            emails.get(records.getInt(base + EMAIL_OFFSET), email);
+        } else {
+            email = null;
+        }
+
+        final var roles = new ArrayList<String>();
+        for (int word = 0; word < roleWords; word++) {
+            var bits = records.getLong(base + ROLES + word * Long.BYTES);
+            while (bits != 0L) {
+                roles.add(roleNames[word * Long.SIZE + Long.numberOfTrailingZeros(bits)]);
+                bits &= bits - 1;
+            }
+        }
+        return new UserDirectoryEntry(records.getLong(base + ID),
+                email != null ? new String(email, StandardCharsets.UTF_8) : null, List.copyOf(roles));
+    }
+
+    static int hash(final long id) {
+        final var h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    static int hash(final int tenant, final byte[] bytes) {
+        // FNV-1a over tenant and email, followed by the MurmurHash3 finalizer to spread the bits used by the mask
+        var h = 0x811C9DC5;
+        for (int shift = 0; shift < Integer.SIZE; shift += Byte.SIZE) {
+            h = (h ^ ((tenant >>> shift) & 0xFF)) * 0x01000193;
+        }
+        for (final var b : bytes) {
+            h = (h ^ (b & 0xFF)) * 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Builds a snapshot for a known number of users and role names.
+     */
+    static final class Builder {
+
+        private final Map<String, Integer> tenantIndexes = new HashMap<>();
+        private final Map<String, Integer> roleIndexes = new HashMap<>();
+        private final String[] roleNames;
+        private final int roleWords;
+        private final int recordSize;
+        private final int capacity;
+        private final int mask;
+        private final ByteBuffer records;
+        private final ByteBuffer emailIndex;
+        private final ByteBuffer idIndex;
+        private ByteBuffer emails;
+        private int size;
+
+        /**
+         * Constructor.
+         *
+         * @param capacity   The number of users
+         * @param roleNames  The names of all roles of these users
+         * @param loadFactor The maximum ratio of users to hash table slots
+         */
+        Builder(final int capacity, @Nonnull final Collection<String> roleNames, final double loadFactor) {
+            Assert.isTrue(capacity >= 0, "The capacity must not be negative");
+            Assert.isTrue(loadFactor > 0.0 && loadFactor < 1.0, "The load factor must be between 0 and 1");
+            this.roleNames = roleNames.toArray(String[]::new);
+            for (int i = 0; i < this.roleNames.length; i++) {
+                roleIndexes.put(this.roleNames[i], i);
+            }
+            this.roleWords = (this.roleNames.length + Long.SIZE - 1) / Long.SIZE;
+            this.recordSize = ROLES + roleWords * Long.BYTES;
+            this.capacity = capacity;
+
+            final var slots = Math.max(2L, Long.highestOneBit((long) Math.ceil(capacity / loadFactor) * 2L - 1L));
+            this.mask = (int) (slots - 1L);
+            this.records = allocate((long) capacity * recordSize);
+            this.emailIndex = allocate(slots * EMAIL_SLOT);
+            this.idIndex = allocate(slots * ID_SLOT);
+            this.emails = allocate(Math.max(1024L, capacity * 32L));
+        }
+
+        /**
+         * Adds a user.
+         *
+         * @param tenantId The tenant id
+         * @param id       The id
+         * @param email    The email, users without one are only found by id
+         * @param roles    The roles
+         */
+        void add(@Nonnull final String tenantId, final long id, @Nullable final String email,
+                @Nonnull final Collection<String> roles) {
+            if (size == capacity) {
+                throw new IllegalStateException("The directory is limited to " + capacity + " users");
+            }
+            final var record = size++;
+            final var base = record * recordSize;
+            final var tenant = tenantIndexes.computeIfAbsent(tenantId, key -> tenantIndexes.size());
+            records.putLong(base + ID, id);
+            records.putInt(base + TENANT, tenant);
+            for (final var role : roles) {
+                if (role == null) {
+                    continue;
+                }
+                final var index = roleIndexes.get(role);
+                if (index == null) {
+                    throw new IllegalStateException("The role " + role + " is not known to the directory");
+                }
+                final var position = base + ROLES + (index / Long.SIZE) * Long.BYTES;
+                records.putLong(position, records.getLong(position) | (1L << (index % Long.SIZE)));
+            }
+
+            var slot = hash(id) & mask;
+            while (idIndex.getInt(slot * ID_SLOT) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            idIndex.putInt(slot * ID_SLOT, record + 1);
+
+            if (email == null) {
+                records.putInt(base + EMAIL_LENGTH, -1);
+            } else {
+                final var bytes = email.getBytes(StandardCharsets.UTF_8);
+                final var offset = appendEmail(bytes);
+                records.putInt(base + EMAIL_OFFSET, offset);
+                records.putInt(base + EMAIL_LENGTH, bytes.length);
+
+                final var hash = hash(tenant, bytes);
+                slot = hash & mask;
+                while (emailIndex.getInt(slot * EMAIL_SLOT + 4) != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                emailIndex.putInt(slot * EMAIL_SLOT, hash);
+                emailIndex.putInt(slot * EMAIL_SLOT + 4, record + 1);
+            }
+        }
+
+        /**
+         * Builds the snapshot. The builder must not be used afterwards.
+         *
+         * @return The snapshot
+         */
+        UserDirectorySnapshot build() {
+            return new UserDirectorySnapshot(this);
+        }
+
+        private int appendEmail(final byte[] bytes) {
+            final var offset = emails.position();
+            if (emails.remaining() < bytes.length) {
+                final var grown = allocate(Math.max((long) emails.capacity() * 2L, (long) offset + bytes.length));
+                grown.put(emails.flip());
+                emails = grown;
+            }
+            emails.put(bytes);
+            return offset;
+        }
+
+        private static ByteBuffer allocate(final long bytes) {
+            if (bytes > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("The directory exceeds the maximum buffer size");
+            }
+            return ByteBuffer.allocateDirect((int) bytes);
+        }
+    }
+}
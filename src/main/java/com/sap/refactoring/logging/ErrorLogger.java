@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.logging;
+
+import static net.logstash.logback.argument.StructuredArguments.v;
+
+import jakarta.annotation.Nonnull;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Logs errors without letting an error storm (e.g. a database outage) turn logging into the bottleneck. The stack
+ * trace of a distinct error, identified by its exception types and the frame the root cause was thrown from, is logged
+ * once per {@link LoggingProperties#getStackTraceInterval() interval}. Further occurrences within the interval are
+ * sampled as single lines, and the number of suppressed occurrences is reported with the next stack trace.
+ */
+@Component
+public class ErrorLogger {
+
+    private final LoggingProperties properties;
+    private final LongSupplier nanoTime;
+    private final Map<String, Occurrences> occurrences = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param properties The logging properties
+     */
+    @Autowired
+    public ErrorLogger(final LoggingProperties properties) {
+        this(properties, System::nanoTime);
+    }
+
+    ErrorLogger(final LoggingProperties properties, final LongSupplier nanoTime) {
+        this.properties = properties;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Logs an error at error level, unless the same error has been logged recently.
+     *
+     * @param log     The logger
+     * @param message The message, without placeholders
+     * @param ex      The error
+     */
+    public void error(@Nonnull final Logger log, @Nonnull final String message, @Nonnull final Throwable ex) {
+        if (!log.isErrorEnabled()) {
+            return;
+        }
+        final var key = signature(ex);
+        if (occurrences.size() >= properties.getMaxDistinctErrors() && !occurrences.containsKey(key)) {
+            occurrences.clear();
+        }
+        final var occurrence = occurrences.computeIfAbsent(key, k -> new Occurrences());
+        final long count;
+        final long suppressed;
+        final var sampleRate = Math.max(1, properties.getDuplicateSampleRate());
+        synchronized (occurrence) {
+            final var now = nanoTime.getAsLong();
+            if (occurrence.count == 0 || now - occurrence.windowStart >= properties.getStackTraceInterval().toNanos()) {
+                suppressed = occurrence.suppressed;
+                occurrence.windowStart = now;
+                occurrence.count = 1;
+                occurrence.suppressed = 0;
+                count = 1;
+            } else {
+                count = ++occurrence.count;
+                suppressed = count % sampleRate == 0 ? -1 : ++occurrence.suppressed;
+            }
+        }
+
+        if (count == 1 && suppressed > 0) {
+            log.error("{} ({} further occurrences without stack trace)", message, v("suppressedErrors", suppressed),
+                    ex);
+        } else if (count == 1) {
+            log.error(message, ex);
+        } else if (suppressed < 0) {
+            log.error("{}: {} ({} occurrences since the last stack trace)", message, ex,
+                    v("errorOccurrences", count));
+        }
+    }
+
+    /**
+     * Identifies an error independently of its messages, which usually contain variable data.
+     *
+     * @param ex The error
+     * @return The signature
+     */
+    static String signature(final Throwable ex) {
+        final var root = ExceptionUtils.getRootCause(ex);
+        final var trace = root.getStackTrace();
+        return ex.getClass().getName() + '/' + root.getClass().getName() + '@'
+                + (trace.length > 0 ? trace[0].toString() : "");
+    }
+
+    private static final class Occurrences {
+        private long windowStart;
+        private long count;
+        private long suppressed;
+    }
+}
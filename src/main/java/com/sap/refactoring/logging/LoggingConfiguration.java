@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.logging;
+
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Registers the {@link RequestLoggingFilter} for the /users API.
+ */
+@Configuration(proxyBeanMethods = false)
+public class LoggingConfiguration {
+
+    /**
+     * Registers the filter ahead of all other filters, so that their log events carry the correlation id as well.
+     *
+     * @param properties The logging properties
+     * @return The filter registration
+     */
+    @Bean
+    FilterRegistrationBean<RequestLoggingFilter> requestLoggingFilter(final LoggingProperties properties) {
+        final var registration = new FilterRegistrationBean<>(new RequestLoggingFilter(properties));
+        registration.addUrlPatterns("/users", "/users/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.logging;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the access log written by the {@link RequestLoggingFilter} and of the {@link ErrorLogger}. The
+ * appenders themselves are configured in {@code logback-spring.xml}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "users.logging")
+public class LoggingProperties {
+
+    /**
+     * Whether every request to the /users API is logged.
+     */
+    private boolean accessLog = true;
+
+    /**
+     * The stack trace of an error is logged at most once per interval, further occurrences are sampled.
+     */
+    private Duration stackTraceInterval = Duration.ofMinutes(1);
+
+    /**
+     * Within the interval, every n-th further occurrence of an error is logged as a single line, the others are only
+     * counted. A value of 1 logs every occurrence.
+     */
+    private int duplicateSampleRate = 100;
+
+    /**
+     * The maximum number of distinct errors tracked; once exceeded, all errors are considered new again.
+     */
+    private int maxDistinctErrors = 1000;
+
+    /**
+     * The number of log events the ring buffer of the asynchronous appender holds, a power of two. Read by
+     * {@code logback-spring.xml} when the logging system is initialized.
+     */
+    private int ringBufferSize = 8192;
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.logging;
+
+import static net.logstash.logback.argument.StructuredArguments.v;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Assigns a correlation id to each request, which is added to every log event written while handling it and returned
+ * to the client, and writes an access log entry once the request has been handled. A correlation id sent by the client
+ * is kept if it is well-formed.
+ */
+public class RequestLoggingFilter extends OncePerRequestFilter {
+
+    /**
+     * The header carrying the correlation id, in both the request and the response.
+     */
+    public static final String CORRELATION_ID_HEADER = "X-Correlation-Id";
+
+    /**
+     * The key of the correlation id in the mapped diagnostic context.
+     */
+    public static final String CORRELATION_ID = "correlationId";
+
+    /**
+     * The name of the access logger.
+     */
+    public static final String ACCESS_LOGGER = "com.sap.refactoring.access";
+
+    private static final Logger LOG = LoggerFactory.getLogger(ACCESS_LOGGER);
+    private static final Pattern VALID_CORRELATION_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    private final LoggingProperties properties;
+
+    /**
+     * Constructor.
+     *
+     * @param properties The logging properties
+     */
+    public RequestLoggingFilter(final LoggingProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Gets the correlation id of the request handled by the current thread.
+     *
+     * @return The correlation id, or null if the thread is not handling a request
+     */
+    @Nullable
+    public static String getCorrelationId() {
+        return MDC.get(CORRELATION_ID);
+    }
+
+    @Override
+    protected void doFilterInternal(@Nonnull final HttpServletRequest request,
+            @Nonnull final HttpServletResponse response, @Nonnull final FilterChain filterChain)
+            throws ServletException, IOException {
+        final var start = System.nanoTime();
+        final var requested = request.getHeader(CORRELATION_ID_HEADER);
+        final var correlationId = requested != null && VALID_CORRELATION_ID.matcher(requested).matches()
+                ? requested : createCorrelationId();
+        MDC.put(CORRELATION_ID, correlationId);
+        response.setHeader(CORRELATION_ID_HEADER, correlationId);
+        var failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = false;
+        } finally {
+            if (properties.isAccessLog() && LOG.isInfoEnabled()) {
+                final var pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                LOG.info("{} {} {} {} ms", v("method", request.getMethod()), v("uri", request.getRequestURI()),
+                        v("status", failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus()),
+                        v("durationMs", (System.nanoTime() - start) / 1_000_000L),
+                        v("endpoint", pattern != null ? pattern : ""));
+            }
+            MDC.remove(CORRELATION_ID);
+        }
+    }
+
+    private static String createCorrelationId() {
+        // not UUID.randomUUID(), whose secure random source is needlessly expensive for this purpose
+        final var random = ThreadLocalRandom.current();
+        return new UUID(random.nextLong(), random.nextLong()).toString();
+    }
+}
@@ -2,25 +2,54 @@ package com.sap.refactoring.repository;
 
 import com.sap.refactoring.users.User;
 import jakarta.annotation.Nonnull;
+import jakarta.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
-import org.springframework.data.repository.CrudRepository;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
- * A {@link CrudRepository} for {@link User} entities.
+ * A {@link JpaRepository} for {@link User} entities. The results of the finder methods are kept in the query cache.
+ * The queries returning lists of users fetch their roles with them, so a list takes one statement rather than one per
+ * user.
  */
 @Repository
-public interface UserRepository extends CrudRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long> {
 
-    Optional<User> findByEmail(@Nonnull final String email);
+    /**
+     * Find a user by email. The id is resolved through the email lookup table, so that only the partition holding the
+     * user is read.
+     *
+     * @param email The email, must not be null or blank
+     * @return An optional user
+     */
+    @Query("select u from User u where u.id = (select e.userId from UserEmail e where e.email = :email)")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    Optional<User> findByEmail(@Nonnull @Param("email") final String email);
+
+    /**
+     * Gets all users, with their roles.
+     *
+     * @return A non-null list of users
+     */
+    @Nonnull
+    @Override
+    @EntityGraph(attributePaths = "roles")
+    List<User> findAll();
 
     /**
-     * Find users by their name.
+     * Find users by their name, with their roles.
      *
      * @param name The name, must not be null or blank
      * @return A non-null list of users
      */
     @Nonnull
+    @EntityGraph(attributePaths = "roles")
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<User> findByName(@Nonnull final String name);
 }
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.service;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+/**
+ * Published by the {@link UserService} whenever a user has been created, modified or removed, so that any derived
+ * state (e.g. cached responses) can be invalidated.
+ *
+ * @param id     The id of the affected user, or null if any user may have changed
+ * @param email  The email of the affected user before the change, if known
+ * @param remote Whether the change has been made by another application instance
+ */
+public record UserChangedEvent(@Nullable Long id, String email, boolean remote) {
+
+    /**
+     * Creates an event for a change made by this application instance.
+     *
+     * @param id    The id of the affected user, not null
+     * @param email The email of the affected user before the change, if known
+     */
+    public UserChangedEvent(@Nonnull final Long id, final String email) {
+        this(id, email, false);
+    }
+
+    /**
+     * Creates an event signalling that any user may have changed, e.g. because changes may have been missed.
+     *
+     * @param remote Whether the changes have been made by another application instance
+     * @return The event
+     */
+    public static UserChangedEvent all(final boolean remote) {
+        return new UserChangedEvent(null, null, remote);
+    }
+
+    /**
+     * Checks if any user may have changed.
+     *
+     * @return True if the event is not limited to a single user
+     */
+    public boolean isAll() {
+        return id == null;
+    }
+}
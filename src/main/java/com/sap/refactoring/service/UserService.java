@@ -13,6 +13,7 @@ import jakarta.transaction.Transactional;
 import java.util.List;
 import java.util.Optional;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
@@ -30,6 +31,7 @@ public class UserService {
     private final UserDao userDao;
     private final UserDataConverter userDataPopulator;
     private final UserReverseConverter userReversePopulator;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Constructor.
@@ -37,12 +39,14 @@ public class UserService {
      * @param userDao The user dao
      * @param userDataPopulator The user populator
      * @param userReversePopulator The user reverse populator
+     * @param eventPublisher The publisher for {@link UserChangedEvent}s
      */
     public UserService(final UserDao userDao, final UserDataConverter userDataPopulator,
-            final UserReverseConverter userReversePopulator) {
+            final UserReverseConverter userReversePopulator, final ApplicationEventPublisher eventPublisher) {
         this.userDao = userDao;
         this.userDataPopulator = userDataPopulator;
         this.userReversePopulator = userReversePopulator;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -95,7 +99,9 @@ public class UserService {
         }
 
         final var example = userReversePopulator.convert(userData);
-        return Optional.of(userDao.createUser(example))
+        final var created = userDao.createUser(example);
+        eventPublisher.publishEvent(new UserChangedEvent(created.getId(), null));
+        return Optional.of(created)
                 .map(userDataPopulator::convert)
                 .orElse(null);
     }
@@ -117,6 +123,7 @@ public class UserService {
             }
 
             final var updatedUser = userReversePopulator.convert(userData);
+            eventPublisher.publishEvent(new UserChangedEvent(userData.getId(), optUser.get().getEmail()));
             return userDao.updateUser(updatedUser)
                     .map(userDataPopulator::convert)
                     .orElse(null);
@@ -130,5 +137,6 @@ public class UserService {
      */
     public void deleteUser(final Long id) {
         userDao.deleteUser(id);
+        eventPublisher.publishEvent(new UserChangedEvent(id, null));
     }
 }
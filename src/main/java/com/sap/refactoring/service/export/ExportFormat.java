@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.service.export;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sap.refactoring.data.UserData;
+import com.sap.refactoring.users.UserBulkDao;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import org.springframework.http.MediaType;
+
+/**
+ * The file formats of user exports, which are accepted by imports as well.
+ */
+public enum ExportFormat {
+
+    /**
+     * One JSON {@link UserData} object per line.
+     */
+    NDJSON("ndjson", MediaType.parseMediaType("application/x-ndjson"), null),
+
+    /**
+     * Comma separated values with a header line. Roles are separated by {@value #ROLE_SEPARATOR}.
+     */
+    CSV("csv", MediaType.parseMediaType("text/csv"), "id,email,name,roles");
+
+    /**
+     * The separator of the roles within the roles column of a CSV file.
+     */
+    public static final String ROLE_SEPARATOR = UserBulkDao.ROLE_SEPARATOR;
+
+    private final String extension;
+    private final MediaType mediaType;
+    private final String header;
+
+    ExportFormat(final String extension, final MediaType mediaType, final String header) {
+        this.extension = extension;
+        this.mediaType = mediaType;
+        this.header = header;
+    }
+
+    /**
+     * Gets the file extension.
+     *
+     * @return The file extension
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Gets the media type.
+     *
+     * @return The media type
+     */
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Gets the header line.
+     *
+     * @return The header line, without line break, or null if the format has none
+     */
+    @Nullable
+    public String getHeader() {
+        return header;
+    }
+
+    /**
+     * Writes the header line, if the format has one.
+     *
+     * @param writer The writer
+     * @throws IOException If writing fails
+     */
+    public void writeHeader(@Nonnull final Writer writer) throws IOException {
+        if (header != null) {
+            writer.write(header);
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * Writes a user as a single line.
+     *
+     * @param writer       The writer
+     * @param objectMapper The object mapper used for JSON
+     * @param user         The user
+     */
+    public void write(@Nonnull final Writer writer, @Nonnull final ObjectMapper objectMapper,
+            @Nonnull final UserData user) {
+        try {
+            if (this == NDJSON) {
+                writer.write(objectMapper.writeValueAsString(user));
+            } else {
+                writer.write(String.valueOf(user.getId()));
+                writer.write(',');
+                writer.write(csvField(user.getEmail()));
+                writer.write(',');
+                writer.write(csvField(user.getName()));
+                writer.write(',');
+                writer.write(csvField(String.join(ROLE_SEPARATOR, user.getRoles())));
+            }
+            writer.write('\n');
+        } catch (final JsonProcessingException ex) {
+            throw new IllegalStateException(ex);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static String csvField(final String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.isEmpty() || value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0
+                || value.indexOf('\r') >= 0) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.service.export;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Getter;
+
+/**
+ * The progress of an export of the users of a tenant to a file.
+ */
+@Getter
+public class ExportJob {
+
+    /**
+     * The state of an export.
+     */
+    public enum State {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    private final String tenantId;
+    private final String name;
+    private final ExportFormat format;
+    private final boolean gzip;
+    private final Path file;
+    private final AtomicInteger completedChunks = new AtomicInteger();
+    private final AtomicLong exportedUsers = new AtomicLong();
+    private volatile int totalChunks;
+    private volatile State state = State.RUNNING;
+    private volatile String error;
+
+    ExportJob(final String tenantId, final String name, final ExportFormat format, final boolean gzip,
+            final Path file) {
+        this.tenantId = tenantId;
+        this.name = name;
+        this.format = format;
+        this.gzip = gzip;
+        this.file = file;
+    }
+
+    void setTotalChunks(final int totalChunks) {
+        this.totalChunks = totalChunks;
+    }
+
+    void chunkCompleted(final long users) {
+        exportedUsers.addAndGet(users);
+        completedChunks.incrementAndGet();
+    }
+
+    void completed() {
+        state = State.COMPLETED;
+    }
+
+    void failed(final String message) {
+        error = message;
+        state = State.FAILED;
+    }
+}
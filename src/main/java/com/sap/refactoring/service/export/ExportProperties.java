@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.service.export;
+
+import java.nio.file.Path;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the {@link UserExportService}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "users.export")
+public class ExportProperties {
+
+    /**
+     * The directory the export files are written to.
+     */
+    private Path directory = Path.of(System.getProperty("java.io.tmpdir"), "user-exports");
+
+    /**
+     * The number of worker threads shared by all file exports, each reading one id range at a time.
+     */
+    private int workers = 4;
+
+    /**
+     * The maximum number of file exports running at once, including those waiting for a worker; further exports are
+     * rejected.
+     */
+    private int maxRunningExports = 4;
+
+    /**
+     * The width of the id range exported at once, and resumed as a whole.
+     */
+    private long chunkSize = 100_000L;
+
+    /**
+     * The number of rows fetched from the database at once.
+     */
+    private int fetchSize = 5_000;
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.service.export;
+
+import jakarta.annotation.Nonnull;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+/**
+ * The worker threads shared by all file exports, so that the number of database connections held by exports is
+ * bounded by the number of workers, regardless of the number of exports. Tasks beyond the number of workers are
+ * queued.
+ * <p>
+ * Deliberately not an {@link java.util.concurrent.Executor} bean, which would replace the application task executor
+ * of Spring Boot.
+ */
+@Component
+public class ExportWorkers implements DisposableBean {
+
+    private final ExecutorService executor;
+
+    /**
+     * Constructor.
+     *
+     * @param properties The export properties
+     */
+    public ExportWorkers(final ExportProperties properties) {
+        final var threadFactory = Executors.defaultThreadFactory();
+        final var count = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(properties.getWorkers(), runnable -> {
+            final var thread = threadFactory.newThread(runnable);
+            thread.setName("user-export-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs a task on a worker.
+     *
+     * @param task The task
+     * @return The completion of the task
+     */
+    @Nonnull
+    public CompletableFuture<Void> submit(@Nonnull final Runnable task) {
+        return CompletableFuture.runAsync(task, executor);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,19 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.service.export;
+
+/**
+ * Thrown when a file export is started while the maximum number of exports are running.
+ */
+public class TooManyExportsException extends RuntimeException {
+
+    /**
+     * Constructor.
+     *
+     * @param maxRunningExports The maximum number of running exports
+     */
+    public TooManyExportsException(final int maxRunningExports) {
+        super("Too many exports are running, at most " + maxRunningExports + " can run at once");
+    }
+}
@@ -0,0 +1,378 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.service.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sap.refactoring.converter.UserDataConverter;
+import com.sap.refactoring.tenancy.TenantContext;
+import com.sap.refactoring.users.PersistenceGuard;
+import com.sap.refactoring.users.UserBulkDao;
+import com.sap.refactoring.users.UserBulkDao.IdRange;
+import jakarta.annotation.Nonnull;
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+/**
+ * Exports all users of a tenant to NDJSON or CSV, optionally gzip compressed, with bounded memory regardless of the
+ * number of users.
+ * <p>
+ * A file export splits the id range of the tenant into chunks, which are read by the {@link ExportWorkers} shared by
+ * all exports through server-side cursors, each into its own part file. The number of exports running at once is
+ * limited, and each chunk is read through the {@link PersistenceGuard}. Once all chunks are done, the parts are
+ * concatenated into the export file (concatenated gzip members form a valid gzip file). The parts and the parameters
+ * of the export are kept in a directory named after the export until then, so that an export which has been
+ * interrupted resumes with the missing chunks when it is started again under the same name. The exports of each
+ * tenant are kept in a directory named after the tenant.
+ */
+@Service
+public class UserExportService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UserExportService.class);
+    private static final Pattern NAME_PATTERN = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    private static final Pattern PART_PATTERN = Pattern.compile("chunk-(\\d+)-(\\d+)\\.part");
+    private static final String JOB_FILE = "export.properties";
+
+    private final UserBulkDao userBulkDao;
+    private final UserDataConverter userDataConverter;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ExportProperties properties;
+    private final ExportWorkers workers;
+    private final PersistenceGuard persistenceGuard;
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+    private final AtomicInteger runningExports = new AtomicInteger();
+
+    /**
+     * Constructor.
+     *
+     * @param userBulkDao        The bulk user dao
+     * @param userDataConverter  The user converter
+     * @param objectMapper       The object mapper used for NDJSON
+     * @param transactionManager The transaction manager
+     * @param properties         The export properties
+     * @param workers            The workers of the file exports
+     * @param persistenceGuard   The guard of the database access
+     */
+    public UserExportService(final UserBulkDao userBulkDao, final UserDataConverter userDataConverter,
+            final ObjectMapper objectMapper, final PlatformTransactionManager transactionManager,
+            final ExportProperties properties, final ExportWorkers workers, final PersistenceGuard persistenceGuard) {
+        this.userBulkDao = userBulkDao;
+        this.userDataConverter = userDataConverter;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.properties = properties;
+        this.workers = workers;
+        this.persistenceGuard = persistenceGuard;
+    }
+
+    /**
+     * Starts, or resumes, an export to a file. If an export with that name is already running, it is returned.
+     *
+     * @param tenantId The tenant whose users are exported
+     * @param name     The name of the export, which determines the file name
+     * @param format   The format
+     * @param gzip     Whether the file is gzip compressed
+     * @return The export
+     * @throws TooManyExportsException If the maximum number of exports are running
+     */
+    public ExportJob startExport(@Nonnull final String tenantId, @Nonnull final String name,
+            @Nonnull final ExportFormat format, final boolean gzip) {
+        Assert.isTrue(TenantContext.isValid(tenantId), "The tenant id is invalid");
+        Assert.isTrue(name != null && NAME_PATTERN.matcher(name).matches(),
+                "The export name must consist of up to 64 letters, digits, '-' or '_'");
+        Assert.notNull(format, "The format must be provided");
+        final var file = getDirectory(tenantId).resolve(name + "." + format.getExtension() + (gzip ? ".gz" : ""));
+        final var key = jobKey(tenantId, name);
+        final var running = jobs.get(key);
+        if (running != null && running.getState() == ExportJob.State.RUNNING) {
+            return running;
+        }
+        if (runningExports.incrementAndGet() > properties.getMaxRunningExports()) {
+            runningExports.decrementAndGet();
+            throw new TooManyExportsException(properties.getMaxRunningExports());
+        }
+        final var created = new ExportJob(tenantId, name, format, gzip, file);
+        final var job = jobs.compute(key, (k, existing) ->
+                existing != null && existing.getState() == ExportJob.State.RUNNING ? existing : created);
+        if (job != created) {
+            // started concurrently under the same name
+            runningExports.decrementAndGet();
+            return job;
+        }
+        workers.submit(() -> run(job));
+        return job;
+    }
+
+    /**
+     * Gets an export started since the application started.
+     *
+     * @param tenantId The tenant which started the export
+     * @param name     The name of the export
+     * @return The export, if known
+     */
+    public Optional<ExportJob> getExport(@Nonnull final String tenantId, @Nonnull final String name) {
+        return Optional.ofNullable(jobs.get(jobKey(tenantId, name)));
+    }
+
+    /**
+     * Gets the directory of the export files of a tenant.
+     *
+     * @param tenantId The tenant id
+     * @return The directory
+     */
+    @Nonnull
+    public Path getDirectory(@Nonnull final String tenantId) {
+        return properties.getDirectory().resolve(tenantId);
+    }
+
+    /**
+     * Streams all users of a tenant, in ascending id order. Each chunk is read in its own transaction, so that no
+     * transaction stays open for the whole export.
+     *
+     * @param tenantId The tenant whose users are exported
+     * @param out      The stream to write to, which is not closed
+     * @param format   The format
+     * @param gzip     Whether the output is gzip compressed
+     * @return The number of exported users
+     * @throws IOException If writing fails
+     */
+    public long export(@Nonnull final String tenantId, @Nonnull final OutputStream out,
+            @Nonnull final ExportFormat format, final boolean gzip) throws IOException {
+        final var target = gzip ? new GZIPOutputStream(out, 1 << 16) : out;
+        final var writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 1 << 16);
+        format.writeHeader(writer);
+        var users = 0L;
+        final var range = userBulkDao.getIdRange(tenantId);
+        if (range.isPresent()) {
+            for (final var chunk : chunks(range.get(), properties.getChunkSize())) {
+                users += exportChunk(tenantId, chunk, format, writer);
+            }
+        }
+        writer.flush();
+        if (target instanceof GZIPOutputStream gzipStream) {
+            gzipStream.finish();
+        }
+        return users;
+    }
+
+    // prepares the export and hands its chunks to the workers, the last chunk to complete assembles the file
+    private void run(final ExportJob job) {
+        final var partsDirectory = getDirectory(job.getTenantId()).resolve(job.getName() + ".parts");
+        final List<IdRange> chunks;
+        try {
+            Files.createDirectories(partsDirectory);
+            chunks = chunks(loadOrCreateRange(job, partsDirectory), properties.getChunkSize());
+            job.setTotalChunks(chunks.size());
+        } catch (final IOException | RuntimeException ex) {
+            finish(job, partsDirectory, ex);
+            return;
+        }
+
+        // once a chunk has failed, the remaining ones are skipped, the export is resumed with them when restarted
+        final var failure = new AtomicReference<Throwable>();
+        final var futures = new ArrayList<CompletableFuture<Void>>();
+        for (int i = 0; i < chunks.size(); i++) {
+            final var index = i;
+            futures.add(workers.submit(() -> {
+                if (failure.get() == null) {
+                    try {
+                        exportChunk(job, index, chunks.get(index), partsDirectory);
+                    } catch (final RuntimeException ex) {
+                        failure.compareAndSet(null, ex);
+                    }
+                }
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                .whenComplete((result, ex) -> finish(job, partsDirectory, ex != null ? ex : failure.get()));
+    }
+
+    private void finish(final ExportJob job, final Path partsDirectory, final Throwable failure) {
+        try {
+            if (failure == null) {
+                assemble(job, partsDirectory);
+                job.completed();
+                LOG.info("Exported {} users to {}", job.getExportedUsers(), job.getFile());
+            } else {
+                final var cause = failure instanceof CompletionException && failure.getCause() != null
+                        ? failure.getCause() : failure;
+                LOG.error("Failed to export users to {}", job.getFile(), cause);
+                job.failed(cause.getMessage());
+            }
+        } catch (final IOException | RuntimeException ex) {
+            LOG.error("Failed to export users to {}", job.getFile(), ex);
+            job.failed(ex.getMessage());
+        } finally {
+            runningExports.decrementAndGet();
+        }
+    }
+
+    private IdRange loadOrCreateRange(final ExportJob job, final Path partsDirectory) throws IOException {
+        final var jobFile = partsDirectory.resolve(JOB_FILE);
+        final var jobProperties = new Properties();
+        if (Files.exists(jobFile)) {
+            try (var reader = Files.newBufferedReader(jobFile)) {
+                jobProperties.load(reader);
+            }
+            if (job.getFormat().name().equals(jobProperties.getProperty("format"))
+                    && String.valueOf(job.isGzip()).equals(jobProperties.getProperty("gzip"))
+                    && String.valueOf(properties.getChunkSize()).equals(jobProperties.getProperty("chunkSize"))) {
+                LOG.info("Resuming the export to {}", job.getFile());
+                return new IdRange(Long.parseLong(jobProperties.getProperty("from")),
+                        Long.parseLong(jobProperties.getProperty("to")));
+            }
+            // the export is restarted with different parameters, the existing parts cannot be reused
+            try (Stream<Path> parts = Files.list(partsDirectory)) {
+                for (final var part : parts.toList()) {
+                    Files.delete(part);
+                }
+            }
+        }
+
+        final var range = userBulkDao.getIdRange(job.getTenantId()).orElse(new IdRange(1L, 0L));
+        jobProperties.setProperty("format", job.getFormat().name());
+        jobProperties.setProperty("gzip", String.valueOf(job.isGzip()));
+        jobProperties.setProperty("chunkSize", String.valueOf(properties.getChunkSize()));
+        jobProperties.setProperty("from", String.valueOf(range.from()));
+        jobProperties.setProperty("to", String.valueOf(range.to()));
+        try (var writer = Files.newBufferedWriter(jobFile)) {
+            jobProperties.store(writer, null);
+        }
+        return range;
+    }
+
+    private void exportChunk(final ExportJob job, final int index, final IdRange chunk, final Path partsDirectory) {
+        final var prefix = String.format("chunk-%08d-", index);
+        try {
+            // a chunk that has been completed before is not exported again
+            try (Stream<Path> existing = Files.list(partsDirectory)) {
+                final var done = existing.map(part -> PART_PATTERN.matcher(part.getFileName().toString()))
+                        .filter(matcher -> matcher.matches() && Integer.parseInt(matcher.group(1)) == index)
+                        .findFirst();
+                if (done.isPresent()) {
+                    job.chunkCompleted(Long.parseLong(done.get().group(2)));
+                    return;
+                }
+            }
+
+            final var temp = partsDirectory.resolve(prefix + "tmp");
+            final long users;
+            try (var out = open(temp, job.isGzip());
+                    var writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16)) {
+                users = exportChunk(job.getTenantId(), chunk, job.getFormat(), writer);
+            }
+            Files.move(temp, partsDirectory.resolve(prefix + users + ".part"), StandardCopyOption.ATOMIC_MOVE);
+            job.chunkCompleted(users);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private long exportChunk(final String tenantId, final IdRange chunk, final ExportFormat format,
+            final Writer writer) {
+        final var users = TenantContext.callAs(tenantId, () -> persistenceGuard.executeLongRunning(
+                () -> readOnlyTransaction.execute(status -> userBulkDao.streamUsers(tenantId, chunk,
+                        properties.getFetchSize(),
+                        user -> format.write(writer, objectMapper, userDataConverter.convert(user))))));
+        return users != null ? users : 0L;
+    }
+
+    private void assemble(final ExportJob job, final Path partsDirectory) throws IOException {
+        final var temp = job.getFile().resolveSibling(job.getFile().getFileName() + ".tmp");
+        try (var out = Files.newOutputStream(temp)) {
+            try (var header = open(out, job.isGzip());
+                    var writer = new OutputStreamWriter(header, StandardCharsets.UTF_8)) {
+                job.getFormat().writeHeader(writer);
+            }
+            try (Stream<Path> parts = Files.list(partsDirectory)) {
+                for (final var part : parts.filter(p -> PART_PATTERN.matcher(p.getFileName().toString()).matches())
+                        .sorted(Comparator.comparing(Path::getFileName))
+                        .toList()) {
+                    Files.copy(part, out);
+                }
+            }
+        }
+        Files.move(temp, job.getFile(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        try (Stream<Path> files = Files.list(partsDirectory)) {
+            for (final var file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(partsDirectory);
+    }
+
+    private static String jobKey(final String tenantId, final String name) {
+        return tenantId + "/" + name;
+    }
+
+    private static OutputStream open(final Path file, final boolean gzip) throws IOException {
+        final var out = Files.newOutputStream(file);
+        return gzip ? new GZIPOutputStream(out, 1 << 16) : out;
+    }
+
+    private static OutputStream open(final OutputStream out, final boolean gzip) throws IOException {
+        // the stream is shared with the parts that follow, it must not be closed along with the header
+        final var unclosable = new FilterOutputStream(out) {
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+        return gzip ? new GZIPOutputStream(unclosable) : unclosable;
+    }
+
+    /**
+     * Splits an id range into chunks.
+     *
+     * @param range     The id range
+     * @param chunkSize The width of a chunk
+     * @return The chunks, in ascending order
+     */
+    static List<IdRange> chunks(@Nonnull final IdRange range, final long chunkSize) {
+        Assert.isTrue(chunkSize > 0, "The chunk size must be positive");
+        final var chunks = new ArrayList<IdRange>();
+        for (var from = range.from(); from <= range.to(); from += chunkSize) {
+            chunks.add(new IdRange(from, Math.min(range.to(), from + chunkSize - 1)));
+            if (from > Long.MAX_VALUE - chunkSize) {
+                break;
+            }
+        }
+        return chunks;
+    }
+}
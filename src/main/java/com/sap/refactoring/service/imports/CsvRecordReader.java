@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.service.imports;
+
+import jakarta.annotation.Nullable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the records of a CSV file (RFC 4180), one at a time, and flags malformed records instead of failing, so that
+ * an import can reject them row by row.
+ * <p>
+ * Quoted fields may contain separators, line breaks and doubled quotes. An unquoted empty field is read as null, a
+ * quoted one as an empty string. A record is malformed if a quote is not closed, if a quote appears within an unquoted
+ * field or after a closing quote, if it exceeds {@value #MAX_RECORD_LENGTH} characters, or if it contains the
+ * replacement character of bytes which are not valid UTF-8. A malformed record which spans several lines, like one
+ * with an unclosed quote, only consumes its first line, reading continues with the next one. Blank lines are skipped.
+ */
+class CsvRecordReader {
+
+    static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+    private static final char REPLACEMENT_CHARACTER = '\uFFFD';
+
+    private final Reader reader;
+    // characters read ahead, which are read again before the reader
+    private String pending = "";
+    private int pendingPosition;
+
+    /**
+     * Constructor.
+     *
+     * @param reader The reader, which is expected to be buffered and is not closed
+     */
+    CsvRecordReader(final Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return The record, or null at the end of the file
+     * @throws IOException If reading fails
+     */
+    @Nullable
+    CsvRecord next() throws IOException {
+        var c = read();
+        while (c == '\n' || c == '\r') {
+            c = read();
+        }
+        if (c < 0) {
+            return null;
+        }
+
+        final var raw = new StringBuilder();
+        final var fields = new ArrayList<String>();
+        final var field = new StringBuilder();
+        var quoted = false;
+        var inQuotes = false;
+        var malformed = false;
+        while (true) {
+            if ((c < 0 && inQuotes) || raw.length() > MAX_RECORD_LENGTH) {
+                return recover(raw, c);
+            }
+            if (c >= 0) {
+                raw.append((char) c);
+            }
+            if (inQuotes) {
+                if (c == '"') {
+                    final var next = read();
+                    if (next == '"') {
+                        raw.append('"');
+                        field.append('"');
+                    } else {
+                        inQuotes = false;
+                        c = next;
+                        continue;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c < 0 || c == '\n' || c == '\r' || c == ',') {
+                fields.add(quoted || !field.isEmpty() ? field.toString() : null);
+                field.setLength(0);
+                quoted = false;
+                if (c != ',') {
+                    if (malformed && indexOfLineBreak(raw) < raw.length() - 1) {
+                        // most likely a quote which is not closed until a later line
+                        return recover(raw, -1);
+                    }
+                    if (c == '\r') {
+                        skipLineFeed();
+                    }
+                    final var invalid = raw.indexOf(String.valueOf(REPLACEMENT_CHARACTER)) >= 0;
+                    return new CsvRecord(fields, malformed || invalid);
+                }
+            } else if (c == '"' && !quoted && field.isEmpty()) {
+                quoted = true;
+                inQuotes = true;
+            } else {
+                // characters after a closing quote, or a quote within an unquoted field
+                malformed |= quoted || c == '"';
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    // a record with an unclosed quote, or an overly long one: only its first line is rejected, reading continues with
+    // the characters after it
+    private CsvRecord recover(final StringBuilder raw, final int c) throws IOException {
+        final var lineBreak = indexOfLineBreak(raw);
+        if (lineBreak >= 0) {
+            unread(raw.substring(lineBreak + 1) + (c >= 0 ? String.valueOf((char) c) : ""));
+        } else {
+            var next = c;
+            while (next >= 0 && next != '\n' && next != '\r') {
+                next = read();
+            }
+        }
+        return new CsvRecord(List.of(), true);
+    }
+
+    private static int indexOfLineBreak(final CharSequence raw) {
+        for (int i = 0; i < raw.length(); i++) {
+            if (raw.charAt(i) == '\n' || raw.charAt(i) == '\r') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void skipLineFeed() throws IOException {
+        final var next = read();
+        if (next >= 0 && next != '\n') {
+            unread(String.valueOf((char) next));
+        }
+    }
+
+    private int read() throws IOException {
+        if (pendingPosition < pending.length()) {
+            return pending.charAt(pendingPosition++);
+        }
+        return reader.read();
+    }
+
+    private void unread(final String characters) {
+        pending = characters + pending.substring(pendingPosition);
+        pendingPosition = 0;
+    }
+
+    /**
+     * A record of a CSV file.
+     *
+     * @param fields    The fields, null for unquoted empty fields
+     * @param malformed Whether the record is malformed, in which case the fields are not meaningful
+     */
+    record CsvRecord(List<String> fields, boolean malformed) {
+    }
+}
@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.service.imports;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the {@link UserImportService}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "users.import")
+public class ImportProperties {
+
+    /**
+     * The maximum number of rejected rows reported in the result of an import. The rejected rows are not kept beyond
+     * the import.
+     */
+    private int maxReportedRejections = 1000;
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.service.imports;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sap.refactoring.converter.ImportRejectionDataConverter;
+import com.sap.refactoring.data.ImportResultData;
+import com.sap.refactoring.service.UserChangedEvent;
+import com.sap.refactoring.service.export.ExportFormat;
+import com.sap.refactoring.service.imports.CsvRecordReader.CsvRecord;
+import com.sap.refactoring.tenancy.TenantContext;
+import com.sap.refactoring.users.UserBulkDao;
+import com.sap.refactoring.users.UserBulkDao.StagedUser;
+import jakarta.annotation.Nonnull;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.regex.Pattern;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.Assert;
+
+/**
+ * Imports large numbers of users from NDJSON or CSV, in the formats written by the
+ * {@link com.sap.refactoring.service.export.UserExportService}. The ids of the imported users are assigned anew.
+ * <p>
+ * The file is parsed while it is streamed into a staging table with {@code COPY FROM STDIN}, and the accepted rows are
+ * merged with a few set-based statements, all in one transaction. A row is rejected if it cannot be parsed, has no
+ * email or no roles, if its email occurs in an earlier row or belongs to an existing user of the tenant, or if a value
+ * is too long.
+ */
+@Service
+public class UserImportService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UserImportService.class);
+
+    private final UserBulkDao userBulkDao;
+    private final ImportRejectionDataConverter importRejectionDataConverter;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ImportProperties properties;
+
+    /**
+     * Constructor.
+     *
+     * @param userBulkDao                  The bulk user dao
+     * @param importRejectionDataConverter The rejected row converter
+     * @param objectMapper                 The object mapper used for NDJSON
+     * @param eventPublisher               The publisher for {@link UserChangedEvent}s
+     * @param properties                   The import properties
+     */
+    public UserImportService(final UserBulkDao userBulkDao,
+            final ImportRejectionDataConverter importRejectionDataConverter, final ObjectMapper objectMapper,
+            final ApplicationEventPublisher eventPublisher, final ImportProperties properties) {
+        this.userBulkDao = userBulkDao;
+        this.importRejectionDataConverter = importRejectionDataConverter;
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.properties = properties;
+    }
+
+    /**
+     * Imports users into a tenant.
+     *
+     * @param tenantId The tenant id
+     * @param in       The file, which is not closed
+     * @param format   The format of the file
+     * @return The result, including the first rejected rows
+     */
+    @Transactional
+    public ImportResultData importUsers(@Nonnull final String tenantId, @Nonnull final InputStream in,
+            @Nonnull final ExportFormat format) {
+        Assert.isTrue(TenantContext.isValid(tenantId), "The tenant id is invalid");
+        Assert.notNull(in, "The input must be provided");
+        Assert.notNull(format, "The format must be provided");
+
+        userBulkDao.createStaging();
+        final var records = userBulkDao.copyIntoStaging(format == ExportFormat.CSV ? parseCsv(in) : parseNdjson(in));
+        final var imported = userBulkDao.mergeStaging(tenantId);
+        if (imported > 0) {
+            // the users have been inserted behind the back of Hibernate
+            eventPublisher.publishEvent(UserChangedEvent.all(false));
+        }
+
+        final var result = new ImportResultData();
+        result.setRecords(records);
+        result.setImported(imported);
+        result.setRejected(records - imported);
+        result.setRejections(userBulkDao.getRejections(properties.getMaxReportedRejections())
+                .stream()
+                .map(importRejectionDataConverter::convert)
+                .toList());
+        LOG.info("Import inserted {} of {} users into tenant {}", imported, records, tenantId);
+        return result;
+    }
+
+    // the columns of the export: id (ignored), email, name and roles; the first record must be the header
+    private static Iterator<StagedUser> parseCsv(final InputStream in) {
+        // bytes which are not valid UTF-8 are decoded into replacement characters, which make their record malformed
+        final var reader = new CsvRecordReader(
+                new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16));
+        final var header = read(reader);
+        Assert.isTrue(header == null || (!header.malformed()
+                        && header.fields().equals(List.of(ExportFormat.CSV.getHeader().split(",")))),
+                "The CSV file must start with the header " + ExportFormat.CSV.getHeader());
+        return new Iterator<>() {
+
+            private CsvRecord next = read(reader);
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public StagedUser next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                final var fields = next.fields();
+                final var user = next.malformed() || fields.size() != 4
+                        ? new StagedUser(null, null, null, true)
+                        : new StagedUser(fields.get(1), fields.get(2), fields.get(3) != null
+                                ? List.of(fields.get(3).split(Pattern.quote(ExportFormat.ROLE_SEPARATOR), -1))
+                                : null, false);
+                next = read(reader);
+                return user;
+            }
+        };
+    }
+
+    private static CsvRecord read(final CsvRecordReader reader) {
+        try {
+            return reader.next();
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private Iterator<StagedUser> parseNdjson(final InputStream in) {
+        final var reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+        return new Iterator<>() {
+
+            private String next = readLine();
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public StagedUser next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                final var user = parseUser(next);
+                next = readLine();
+                return user;
+            }
+
+            private String readLine() {
+                try {
+                    String line;
+                    do {
+                        line = reader.readLine();
+                    } while (line != null && StringUtils.isBlank(line));
+                    return line;
+                } catch (final IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+        };
+    }
+
+    private StagedUser parseUser(final String line) {
+        final JsonNode node;
+        try {
+            node = objectMapper.readTree(line);
+        } catch (final JsonProcessingException ex) {
+            return new StagedUser(null, null, null, true);
+        }
+        if (!node.isObject() || !isTextOrAbsent(node.get("email")) || !isTextOrAbsent(node.get("name"))) {
+            return new StagedUser(null, null, null, true);
+        }
+
+        List<String> roles = null;
+        final var rolesNode = node.get("roles");
+        if (rolesNode != null && !rolesNode.isNull()) {
+            if (!rolesNode.isArray()) {
+                return new StagedUser(null, null, null, true);
+            }
+            roles = new ArrayList<>(rolesNode.size());
+            for (final var role : rolesNode) {
+                if (!role.isTextual()) {
+                    return new StagedUser(null, null, null, true);
+                }
+                roles.add(role.textValue());
+            }
+        }
+        return new StagedUser(text(node.get("email")), text(node.get("name")), roles, false);
+    }
+
+    private static boolean isTextOrAbsent(final JsonNode node) {
+        return node == null || node.isNull() || node.isTextual();
+    }
+
+    private static String text(final JsonNode node) {
+        return node != null && node.isTextual() ? node.textValue() : null;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.service.search;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the {@link UserSearchService}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "users.search")
+public class SearchProperties {
+
+    /**
+     * The minimum word similarity between the search term and a part of the name or email of a user, for the user to
+     * match. Lower values tolerate more typos, at the cost of more and weaker matches.
+     */
+    private double similarityThreshold = 0.5;
+
+    /**
+     * The maximum number of users which are ranked for each word of the term, taken from the words of the users nearest
+     * to it. The ranking of broader terms, and their pages, are limited to these candidates, which bounds the cost of a
+     * search.
+     */
+    private int maxCandidates = 300;
+
+    /**
+     * The minimum length of a search term. Shorter terms consist of too few trigrams to be selective.
+     */
+    private int minTermLength = 3;
+
+    /**
+     * The number of matches returned if the request does not specify a limit.
+     */
+    private int defaultLimit = 20;
+
+    /**
+     * The maximum number of matches returned at once.
+     */
+    private int maxLimit = 100;
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.service.search;
+
+import com.sap.refactoring.converter.UserDataConverter;
+import com.sap.refactoring.data.SearchResultData;
+import com.sap.refactoring.users.PersistenceGuard;
+import com.sap.refactoring.users.UserSearchDao;
+import com.sap.refactoring.users.UserSearchDao.Position;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
+
+/**
+ * Searches users by partial or misspelled names and emails, for support staff who do not know the exact values.
+ * <p>
+ * The results are returned in pages of the best matches first. A page which may be followed by more matches carries
+ * an opaque cursor, which is passed back to get the next page. The cursor holds the position of the last match, so
+ * pages neither skip nor repeat users. The ranking of a broad term is approximate: it is limited to the
+ * {@link SearchProperties#getMaxCandidates() candidates} whose words are nearest to the term, see
+ * {@link UserSearchDao}.
+ */
+@Service
+public class UserSearchService {
+
+    private final UserSearchDao userSearchDao;
+    private final PersistenceGuard persistenceGuard;
+    private final UserDataConverter userDataConverter;
+    private final SearchProperties properties;
+
+    /**
+     * Constructor.
+     *
+     * @param userSearchDao     The user search dao
+     * @param persistenceGuard  The guard of the database calls
+     * @param userDataConverter The user converter
+     * @param properties        The search properties
+     */
+    public UserSearchService(final UserSearchDao userSearchDao, final PersistenceGuard persistenceGuard,
+            final UserDataConverter userDataConverter, final SearchProperties properties) {
+        this.userSearchDao = userSearchDao;
+        this.persistenceGuard = persistenceGuard;
+        this.userDataConverter = userDataConverter;
+        this.properties = properties;
+    }
+
+    /**
+     * Searches the users of a tenant.
+     *
+     * @param tenantId The tenant id
+     * @param term     The search term
+     * @param limit    The maximum number of matches, or null for the default
+     * @param cursor   The cursor of the previous page, or null for the first page
+     * @return The matches, best first, and the cursor of the next page if there may be more matches
+     */
+    @Nonnull
+    public SearchResultData search(@Nonnull final String tenantId, @Nullable final String term,
+            @Nullable final Integer limit, @Nullable final String cursor) {
+        final var trimmed = StringUtils.trimToEmpty(term);
+        Assert.isTrue(trimmed.length() >= properties.getMinTermLength(),
+                "The search term must have at least " + properties.getMinTermLength() + " characters");
+        final var pageSize = limit != null ? limit : properties.getDefaultLimit();
+        Assert.isTrue(pageSize > 0 && pageSize <= properties.getMaxLimit(),
+                "The limit must be between 1 and " + properties.getMaxLimit());
+        final var after = cursor != null ? decode(cursor) : null;
+
+        final var matches = persistenceGuard.execute(() -> userSearchDao.search(tenantId, trimmed,
+                properties.getSimilarityThreshold(), properties.getMaxCandidates(), after, pageSize));
+        final var result = new SearchResultData();
+        result.setUsers(matches.stream().map(match -> userDataConverter.convert(match.user())).toList());
+        if (matches.size() == pageSize) {
+            result.setNext(encode(matches.get(matches.size() - 1).position()));
+        }
+        return result;
+    }
+
+    private static String encode(final Position position) {
+        final var value = Float.toString(position.distance()) + ':' + position.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static Position decode(final String cursor) {
+        try {
+            final var value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            final var separator = value.indexOf(':');
+            return new Position(Float.parseFloat(value.substring(0, separator)),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (final IllegalArgumentException | IndexOutOfBoundsException ex) {
+            throw new IllegalArgumentException("The cursor is invalid", ex);
+        }
+    }
+}
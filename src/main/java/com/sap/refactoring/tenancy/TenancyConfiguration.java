@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.tenancy;
+
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Registers the {@link TenantFilter} for the /users API.
+ */
+@Configuration(proxyBeanMethods = false)
+public class TenancyConfiguration {
+
+    /**
+     * Registers the filter after the request logging and query diagnostics filters, so that a rejected request is
+     * still logged with its correlation id.
+     *
+     * @param properties The tenancy properties
+     * @return The filter registration
+     */
+    @Bean
+    FilterRegistrationBean<TenantFilter> tenantFilter(final TenancyProperties properties) {
+        final var registration = new FilterRegistrationBean<>(new TenantFilter(properties));
+        registration.addUrlPatterns("/users", "/users/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+        return registration;
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.tenancy;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the {@link TenantContext} and the {@link TenantFilter}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "users.tenancy")
+public class TenancyProperties {
+
+    /**
+     * The tenant of requests without a tenant header, and of work done outside of any request.
+     */
+    private String defaultTenant = "default";
+
+    /**
+     * Whether requests without a tenant header are rejected, instead of being assigned the default tenant.
+     */
+    private boolean headerRequired;
+}
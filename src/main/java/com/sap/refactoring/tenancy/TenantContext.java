@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.tenancy;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.context.spi.CurrentTenantIdentifierResolver;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+/**
+ * The tenant the current thread acts for, which scopes all access to users. Requests are assigned their tenant by the
+ * {@link TenantFilter}, other threads act for the default tenant unless they are given one with
+ * {@link #callAs(String, Supplier)}.
+ * <p>
+ * All tenants share the tables, the tenant is a column of the {@code users} and {@code user_emails} tables. Hibernate
+ * resolves the tenant from here when a session is opened, adds it to every query of the tenant-scoped entities and sets
+ * it on inserted users (see {@link org.hibernate.annotations.TenantId}). Routing a request to its tenant therefore
+ * costs a thread-local lookup, with no {@code search_path} to set on the connection and no connection pool per tenant.
+ * Plain JDBC access does not go through Hibernate and is given the tenant explicitly.
+ */
+@Component
+public class TenantContext implements CurrentTenantIdentifierResolver<String>, HibernatePropertiesCustomizer {
+
+    private static final Pattern VALID_TENANT_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private final TenancyProperties properties;
+
+    /**
+     * Constructor.
+     *
+     * @param properties The tenancy properties
+     */
+    public TenantContext(final TenancyProperties properties) {
+        Assert.isTrue(isValid(properties.getDefaultTenant()), "The default tenant is not a valid tenant id");
+        this.properties = properties;
+    }
+
+    /**
+     * Gets the tenant the current thread acts for.
+     *
+     * @return The tenant id
+     */
+    @Nonnull
+    public String getTenantId() {
+        final var tenantId = CURRENT.get();
+        return tenantId != null ? tenantId : properties.getDefaultTenant();
+    }
+
+    /**
+     * Executes an operation on behalf of a tenant.
+     *
+     * @param tenantId  The tenant id
+     * @param operation The operation
+     * @param <T>       The result type
+     * @return The result of the operation
+     */
+    public static <T> T callAs(@Nonnull final String tenantId, @Nonnull final Supplier<T> operation) {
+        Assert.isTrue(isValid(tenantId), "The tenant id is invalid");
+        final var previous = set(tenantId);
+        try {
+            return operation.get();
+        } finally {
+            set(previous);
+        }
+    }
+
+    /**
+     * Checks if a tenant id is well-formed: 1 to 64 letters, digits, '-' or '_', so that it can be used in file names
+     * as well.
+     *
+     * @param tenantId The tenant id
+     * @return True if the tenant id is well-formed
+     */
+    public static boolean isValid(@Nullable final String tenantId) {
+        return tenantId != null && VALID_TENANT_ID.matcher(tenantId).matches();
+    }
+
+    /**
+     * Sets the tenant of the current thread.
+     *
+     * @param tenantId The tenant id, or null for the default tenant
+     * @return The previous tenant id of the thread, or null
+     */
+    static String set(@Nullable final String tenantId) {
+        final var previous = CURRENT.get();
+        if (tenantId != null) {
+            CURRENT.set(tenantId);
+        } else {
+            CURRENT.remove();
+        }
+        return previous;
+    }
+
+    @Override
+    public String resolveCurrentTenantIdentifier() {
+        return getTenantId();
+    }
+
+    @Override
+    public boolean validateExistingCurrentSessions() {
+        // sessions are bound to transactions, which do not span tenants
+        return false;
+    }
+
+    @Override
+    public void customize(@Nonnull final Map<String, Object> hibernateProperties) {
+        hibernateProperties.put(AvailableSettings.MULTI_TENANT_IDENTIFIER_RESOLVER, this);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.tenancy;
+
+import jakarta.annotation.Nonnull;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import org.slf4j.MDC;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Assigns each request the tenant sent in the {@value #TENANT_ID_HEADER} header, which is then available from the
+ * {@link TenantContext} and added to every log event written while handling the request. Requests without the header
+ * act for the default tenant, unless the header is required. Requests with a malformed tenant id are rejected.
+ */
+public class TenantFilter extends OncePerRequestFilter {
+
+    /**
+     * The header carrying the tenant id.
+     */
+    public static final String TENANT_ID_HEADER = "X-Tenant-Id";
+
+    /**
+     * The key of the tenant id in the mapped diagnostic context.
+     */
+    public static final String TENANT_ID = "tenantId";
+
+    private final TenancyProperties properties;
+
+    /**
+     * Constructor.
+     *
+     * @param properties The tenancy properties
+     */
+    public TenantFilter(final TenancyProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    protected void doFilterInternal(@Nonnull final HttpServletRequest request,
+            @Nonnull final HttpServletResponse response, @Nonnull final FilterChain filterChain)
+            throws ServletException, IOException {
+        final var requested = request.getHeader(TENANT_ID_HEADER);
+        if (requested == null && properties.isHeaderRequired()) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "The " + TENANT_ID_HEADER + " header is required");
+            return;
+        }
+        if (requested != null && !TenantContext.isValid(requested)) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "The tenant id is invalid");
+            return;
+        }
+
+        final var previous = TenantContext.set(requested);
+        MDC.put(TENANT_ID, requested != null ? requested : properties.getDefaultTenant());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            TenantContext.set(previous);
+            MDC.remove(TENANT_ID);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.users;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.sap.refactoring.tenancy.TenantContext;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.springframework.dao.NonTransientDataAccessResourceException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.dao.UncategorizedDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+
+/**
+ * Guards the {@link UserDao} operations with a circuit breaker and a bulkhead, so that requests fail fast with a
+ * {@link CallNotPermittedException} or a {@link BulkheadFullException} while the database is failing or slow, instead
+ * of each waiting for the JDBC timeouts. Only infrastructure failures and slow calls count against the circuit, not
+ * e.g. constraint violations. The circuit breaker and bulkhead metrics are published as
+ * {@code resilience4j.circuitbreaker.*} and {@code resilience4j.bulkhead.*}.
+ * <p>
+ * Each tenant has a bulkhead of its own in front of the shared ones, so that a tenant which saturates its bulkhead is
+ * rejected without holding any shared capacity. The bulkheads of tenants idle for a while are dropped; they are not
+ * published as metrics, whose number would grow with the number of tenants.
+ * <p>
+ * The physical connection of a transaction is only obtained with its first statement (see
+ * {@link com.sap.refactoring.config.DataSourcePoolConfiguration}), so that waiting for a connection happens within the
+ * guarded operation.
+ */
+@Component
+public class PersistenceGuard implements MeterBinder {
+
+    /**
+     * The name of the circuit breaker and the bulkhead.
+     */
+    public static final String NAME = "users-db";
+
+    private static final Duration TENANT_IDLE_TIMEOUT = Duration.ofMinutes(10);
+
+    private final PersistenceGuardProperties properties;
+    private final TenantContext tenantContext;
+    private final LoadingCache<String, Bulkhead> tenantBulkheads;
+    private final CircuitBreakerRegistry circuitBreakers;
+    private final BulkheadRegistry bulkheads;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+
+    /**
+     * Constructor.
+     *
+     * @param properties    The guard properties
+     * @param tenantContext The tenant context, which determines the bulkhead of the tenant
+     */
+    public PersistenceGuard(final PersistenceGuardProperties properties, final TenantContext tenantContext) {
+        this.properties = properties;
+        this.tenantContext = tenantContext;
+        this.circuitBreakers = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(properties.getFailureRateThreshold())
+                .slowCallRateThreshold(properties.getSlowCallRateThreshold())
+                .slowCallDurationThreshold(properties.getSlowCallDuration())
+                .slidingWindowSize(properties.getSlidingWindowSize())
+                .minimumNumberOfCalls(properties.getMinimumNumberOfCalls())
+                .waitDurationInOpenState(properties.getWaitDurationInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(properties.getPermittedCallsInHalfOpenState())
+                .recordException(PersistenceGuard::isFailure)
+                // a call rejected by the shared bulkhead within the circuit counts neither as failure nor as success
+                .ignoreExceptions(BulkheadFullException.class)
+                .build());
+        this.bulkheads = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(properties.getMaxConcurrentCalls())
+                .maxWaitDuration(properties.getMaxWaitDuration())
+                .build());
+        final var tenantConfig = BulkheadConfig.custom()
+                .maxConcurrentCalls(properties.getMaxConcurrentCallsPerTenant())
+                .maxWaitDuration(properties.getMaxWaitDuration())
+                .build();
+        this.tenantBulkheads = Caffeine.newBuilder()
+                .expireAfterAccess(TENANT_IDLE_TIMEOUT)
+                .build(tenantId -> Bulkhead.of(NAME + ":" + tenantId, tenantConfig));
+        this.circuitBreaker = circuitBreakers.circuitBreaker(NAME);
+        this.bulkhead = bulkheads.bulkhead(NAME);
+    }
+
+    /**
+     * Executes an operation, unless the circuit is open or a bulkhead is full.
+     *
+     * @param operation The operation
+     * @param <T>       The result type
+     * @return The result of the operation
+     */
+    public <T> T execute(@Nonnull final Supplier<T> operation) {
+        return execute(operation, null);
+    }
+
+    /**
+     * Executes an operation, or a fallback if the circuit is open or a bulkhead is full.
+     *
+     * @param operation The operation
+     * @param fallback  The fallback, which must not access the database and returns null if it cannot provide a
+     *                  result, optional
+     * @param <T>       The result type
+     * @return The result of the operation or the fallback
+     * @throws CallNotPermittedException If the circuit is open and the fallback has no result
+     * @throws BulkheadFullException     If a bulkhead is full and the fallback has no result
+     */
+    public <T> T execute(@Nonnull final Supplier<T> operation, @Nullable final Supplier<T> fallback) {
+        if (!properties.isEnabled()) {
+            return operation.get();
+        }
+        try {
+            return tenantBulkheads.get(tenantContext.getTenantId()).executeSupplier(
+                    () -> circuitBreaker.executeSupplier(() -> bulkhead.executeSupplier(operation)));
+        } catch (final CallNotPermittedException | BulkheadFullException ex) {
+            final var result = fallback != null ? fallback.get() : null;
+            if (result == null) {
+                throw ex;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Executes a long-running operation, such as reading a chunk of an export, unless the circuit is open or a
+     * bulkhead is full. Its failures count against the circuit, its duration does not: it takes longer than the slow
+     * call duration by design, and would otherwise open the circuit for all other operations.
+     *
+     * @param operation The operation
+     * @param <T>       The result type
+     * @return The result of the operation
+     */
+    public <T> T executeLongRunning(@Nonnull final Supplier<T> operation) {
+        if (!properties.isEnabled()) {
+            return operation.get();
+        }
+        return tenantBulkheads.get(tenantContext.getTenantId()).executeSupplier(() -> {
+            circuitBreaker.acquirePermission();
+            try {
+                final var result = bulkhead.executeSupplier(operation);
+                circuitBreaker.onSuccess(0L, TimeUnit.NANOSECONDS);
+                return result;
+            } catch (final RuntimeException ex) {
+                circuitBreaker.onError(0L, TimeUnit.NANOSECONDS, ex);
+                throw ex;
+            }
+        });
+    }
+
+    /**
+     * Executes an operation without result, unless the circuit is open or a bulkhead is full.
+     *
+     * @param operation The operation
+     */
+    public void run(@Nonnull final Runnable operation) {
+        execute(() -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    /**
+     * Gets the state of the circuit.
+     *
+     * @return The state
+     */
+    @Nonnull
+    public CircuitBreaker.State getState() {
+        return circuitBreaker.getState();
+    }
+
+    @Override
+    public void bindTo(@Nonnull final MeterRegistry registry) {
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakers).bindTo(registry);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheads).bindTo(registry);
+    }
+
+    /**
+     * Checks if an exception indicates that the database is unavailable or overloaded, rather than e.g. a constraint
+     * violation or an invalid argument.
+     *
+     * @param ex The exception
+     * @return True if the exception counts against the circuit
+     */
+    static boolean isFailure(final Throwable ex) {
+        return ex instanceof TransientDataAccessException
+                || ex instanceof RecoverableDataAccessException
+                || ex instanceof NonTransientDataAccessResourceException
+                || ex instanceof UncategorizedDataAccessException
+                || ex instanceof TransactionException;
+    }
+}
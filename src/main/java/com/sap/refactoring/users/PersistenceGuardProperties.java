@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.users;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the {@link PersistenceGuard}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "users.persistence-guard")
+public class PersistenceGuardProperties {
+
+    /**
+     * Whether the {@link UserDao} operations are guarded by the circuit breaker and the bulkhead.
+     */
+    private boolean enabled = true;
+
+    /**
+     * The percentage of failed calls in the sliding window at which the circuit opens.
+     */
+    private float failureRateThreshold = 50;
+
+    /**
+     * The percentage of slow calls in the sliding window at which the circuit opens.
+     */
+    private float slowCallRateThreshold = 80;
+
+    /**
+     * Calls taking at least this long are considered slow.
+     */
+    private Duration slowCallDuration = Duration.ofSeconds(2);
+
+    /**
+     * The number of most recent calls the failure and slow call rates are calculated from.
+     */
+    private int slidingWindowSize = 50;
+
+    /**
+     * The minimum number of calls before the rates are calculated at all.
+     */
+    private int minimumNumberOfCalls = 20;
+
+    /**
+     * How long an open circuit rejects calls before it lets trial calls through (half-open).
+     */
+    private Duration waitDurationInOpenState = Duration.ofSeconds(10);
+
+    /**
+     * The number of trial calls in the half-open state, which decide whether the circuit closes or opens again.
+     */
+    private int permittedCallsInHalfOpenState = 5;
+
+    /**
+     * The maximum number of concurrent calls (bulkhead), so that a slow database cannot tie up all request threads.
+     */
+    private int maxConcurrentCalls = 100;
+
+    /**
+     * The maximum number of concurrent calls of a single tenant, so that e.g. large list scans of one tenant cannot
+     * take up the capacity of the others.
+     */
+    private int maxConcurrentCallsPerTenant = 20;
+
+    /**
+     * How long a call waits for a free slot in a bulkhead before it is rejected.
+     */
+    private Duration maxWaitDuration = Duration.ofMillis(50);
+}
@@ -1,5 +1,6 @@
 package com.sap.refactoring.users;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.ElementCollection;
 import jakarta.persistence.Entity;
@@ -10,12 +11,20 @@ import java.util.List;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.TenantId;
 
 /**
- * The user entity. The email is the unique identifier.
+ * The user entity. Every user belongs to a tenant, which Hibernate sets on insert and adds to every query (but not to
+ * lookups by id, which are checked by the {@link UserDao}). The email is the unique identifier within a tenant,
+ * enforced through the {@link UserEmail} lookup table as the table is partitioned by id. Users and their roles are kept
+ * in the second-level cache.
  */
 @Entity
 @Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Getter
 @Setter
 @EqualsAndHashCode
@@ -24,9 +33,12 @@ public class User {
     @Id
     @GeneratedValue
     private Long id;
-    @Column(unique = true)
+    @TenantId
+    @Column(name = "tenant_id", nullable = false, updatable = false)
+    private String tenantId;
     private String email;
     private String name;
     @ElementCollection
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     private List<String> roles;
 }
@@ -0,0 +1,406 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.users;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.Assert;
+
+/**
+ * DAO for bulk operations on large numbers of users, which bypasses JPA and uses plain JDBC so that users are streamed
+ * instead of being held in memory.
+ * <p>
+ * Imports are loaded with {@code COPY FROM STDIN} into a temporary staging table, which is dropped when the transaction
+ * ends. The business rules are then applied to all staged rows at once, and the accepted rows are merged into the
+ * {@code users} and {@code user_roles} tables. The rejected rows are kept in the staging table as well, so they are
+ * reported before the transaction ends and then discarded. As this bypasses Hibernate, its caches must be evicted
+ * afterwards.
+ * <p>
+ * Hibernate does not scope these statements to a tenant either, so the tenant is passed explicitly where a statement
+ * is limited to one.
+ */
+@Component
+public class UserBulkDao {
+
+    /**
+     * The separator of the roles within the roles column of an import.
+     */
+    public static final String ROLE_SEPARATOR = "|";
+
+    private static final String SELECT = "SELECT u.id, u.tenant_id, u.email, u.name,"
+            + " ARRAY(SELECT r.roles FROM user_roles r WHERE r.user_id = u.id) AS roles FROM users u";
+    private static final String SELECT_USERS = SELECT + " WHERE u.id >= ? AND u.id <= ? ORDER BY u.id";
+    private static final String SELECT_TENANT_USERS = SELECT
+            + " WHERE u.tenant_id = ? AND u.id >= ? AND u.id <= ? ORDER BY u.id";
+    private static final String SELECT_USER = SELECT + " WHERE u.id = ?";
+    private static final String SELECT_USER_BY_EMAIL = SELECT
+            + " WHERE u.id = (SELECT e.user_id FROM user_emails e WHERE e.tenant_id = ? AND e.email = ?)";
+
+    private static final String CREATE_STAGING = "CREATE TEMPORARY TABLE user_import_staging ("
+            + " line BIGINT GENERATED ALWAYS AS IDENTITY, email TEXT, name TEXT, roles TEXT,"
+            + " malformed BOOLEAN NOT NULL DEFAULT FALSE, reason VARCHAR(32), user_id BIGINT) ON COMMIT DROP";
+
+    // the rules of UserDao (email and roles are required) and the limits of the columns
+    private static final String REJECT_INVALID = "UPDATE user_import_staging SET reason = CASE"
+            + " WHEN malformed THEN '" + Rejection.MALFORMED + "'"
+            + " WHEN email IS NULL OR btrim(email) = '' THEN '" + Rejection.MISSING_EMAIL + "'"
+            + " WHEN coalesce(cardinality(array_remove(string_to_array(roles, '" + ROLE_SEPARATOR + "'), '')), 0) = 0"
+            + " THEN '" + Rejection.MISSING_ROLES + "'"
+            + " WHEN length(email) > 255 OR length(name) > 255 OR EXISTS (SELECT 1 FROM"
+            + " unnest(string_to_array(roles, '" + ROLE_SEPARATOR + "')) r WHERE length(r) > 255)"
+            + " THEN '" + Rejection.VALUE_TOO_LONG + "' END";
+
+    // only the first valid occurrence of an email within the import is accepted
+    private static final String REJECT_DUPLICATES = "UPDATE user_import_staging s SET reason = '"
+            + Rejection.DUPLICATE_EMAIL + "' FROM (SELECT line, row_number() OVER (PARTITION BY email ORDER BY line) n"
+            + " FROM user_import_staging WHERE reason IS NULL) d WHERE d.line = s.line AND d.n > 1";
+
+    private static final String REJECT_EMAILS_IN_USE = "UPDATE user_import_staging s SET reason = '"
+            + Rejection.EMAIL_IN_USE + "' WHERE reason IS NULL"
+            + " AND EXISTS (SELECT 1 FROM user_emails e WHERE e.tenant_id = ? AND e.email = s.email)";
+
+    // the increment of users_seq: every value taken from it reserves the block of ids up to and including it, as
+    // Hibernate allocates the ids of new users the same way
+    private static final int ID_BLOCK_SIZE = 50;
+
+    private static final String RESERVE_ID_BLOCKS = "SELECT nextval('users_seq') FROM generate_series(1, ?)";
+
+    // the accepted rows are numbered in the order of the import, through the reserved blocks
+    private static final String ASSIGN_IDS = "UPDATE user_import_staging s SET user_id = (?::bigint[])[a.n / "
+            + ID_BLOCK_SIZE + " + 1] - " + (ID_BLOCK_SIZE - 1) + " + a.n % " + ID_BLOCK_SIZE
+            + " FROM (SELECT line, row_number() OVER (ORDER BY line) - 1 n FROM user_import_staging"
+            + " WHERE reason IS NULL) a WHERE a.line = s.line";
+
+    private static final String MERGE_USERS = "INSERT INTO users (id, tenant_id, email, name)"
+            + " SELECT user_id, ?, email, name FROM user_import_staging WHERE user_id IS NOT NULL";
+
+    private static final String MERGE_ROLES = "INSERT INTO user_roles (user_id, roles)"
+            + " SELECT s.user_id, r.role FROM user_import_staging s,"
+            + " unnest(string_to_array(s.roles, '" + ROLE_SEPARATOR + "')) AS r(role)"
+            + " WHERE s.user_id IS NOT NULL AND r.role <> ''";
+
+    private static final String SELECT_REJECTIONS = "SELECT line, email, reason FROM user_import_staging"
+            + " WHERE reason IS NOT NULL ORDER BY line LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Constructor.
+     *
+     * @param jdbcTemplate The JDBC template
+     */
+    public UserBulkDao(final JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Gets the range of the user ids of a tenant, or of all users.
+     *
+     * @param tenantId The tenant id, or null for all tenants
+     * @return The range, or empty if there are no users
+     */
+    public Optional<IdRange> getIdRange(@Nullable final String tenantId) {
+        final RowMapper<IdRange> mapper = (rs, row) -> rs.getObject(1) != null
+                ? new IdRange(rs.getLong(1), rs.getLong(2)) : null;
+        return Optional.ofNullable(tenantId != null
+                ? jdbcTemplate.queryForObject("SELECT min(id), max(id) FROM users WHERE tenant_id = ?", mapper,
+                        tenantId)
+                : jdbcTemplate.queryForObject("SELECT min(id), max(id) FROM users", mapper));
+    }
+
+    /**
+     * Counts the users of all tenants.
+     *
+     * @return The number of users
+     */
+    public long countUsers() {
+        final var count = jdbcTemplate.queryForObject("SELECT count(*) FROM users", Long.class);
+        return count != null ? count : 0L;
+    }
+
+    /**
+     * Gets the distinct names of all roles assigned to any user of any tenant.
+     *
+     * @return The role names, sorted
+     */
+    @Nonnull
+    public List<String> getRoleNames() {
+        return jdbcTemplate.queryForList(
+                "SELECT DISTINCT roles FROM user_roles WHERE roles IS NOT NULL ORDER BY roles", String.class);
+    }
+
+    /**
+     * Finds a user of any tenant by id, bypassing all caches.
+     *
+     * @param id The id
+     * @return The user, if found, which is not attached to any persistence context
+     */
+    public Optional<User> findUser(final long id) {
+        return jdbcTemplate.query(SELECT_USER, (rs, row) -> mapUser(rs), id).stream().findFirst();
+    }
+
+    /**
+     * Finds a user by email, bypassing all caches.
+     *
+     * @param tenantId The tenant id
+     * @param email    The email
+     * @return The user, if found, which is not attached to any persistence context
+     */
+    public Optional<User> findUserByEmail(@Nonnull final String tenantId, @Nonnull final String email) {
+        return jdbcTemplate.query(SELECT_USER_BY_EMAIL, (rs, row) -> mapUser(rs), tenantId, email).stream()
+                .findFirst();
+    }
+
+    /**
+     * Streams the users of a tenant, or of all tenants, within an id range, in ascending id order. The rows are fetched
+     * through a server-side cursor in batches of the given size, which requires a transaction.
+     *
+     * @param tenantId  The tenant id, or null for all tenants
+     * @param range     The id range
+     * @param fetchSize The number of rows fetched at once
+     * @param consumer  The consumer for the users, which are not attached to any persistence context
+     * @return The number of users
+     */
+    @Transactional(propagation = Propagation.MANDATORY, readOnly = true)
+    public long streamUsers(@Nullable final String tenantId, @Nonnull final IdRange range, final int fetchSize,
+            @Nonnull final Consumer<User> consumer) {
+        Assert.isTrue(fetchSize > 0, "The fetch size must be positive");
+        final var count = new long[1];
+        jdbcTemplate.query(connection -> {
+            final var statement = connection.prepareStatement(tenantId != null ? SELECT_TENANT_USERS : SELECT_USERS);
+            statement.setFetchSize(fetchSize);
+            var index = 1;
+            if (tenantId != null) {
+                statement.setString(index++, tenantId);
+            }
+            statement.setLong(index++, range.from());
+            statement.setLong(index, range.to());
+            return statement;
+        }, rs -> {
+            consumer.accept(mapUser(rs));
+            count[0]++;
+        });
+        return count[0];
+    }
+
+    /**
+     * Creates the staging table of an import, which is dropped when the transaction ends.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void createStaging() {
+        jdbcTemplate.execute(CREATE_STAGING);
+    }
+
+    /**
+     * Copies users into the staging table.
+     *
+     * @param users The users
+     * @return The number of staged rows
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long copyIntoStaging(@Nonnull final Iterator<StagedUser> users) {
+        final var sql = "COPY user_import_staging (email, name, roles, malformed)"
+                + " FROM STDIN WITH (FORMAT csv, ENCODING 'UTF8')";
+        return copy(sql, copyOut -> {
+            final var writer = new BufferedWriter(new OutputStreamWriter(copyOut, StandardCharsets.UTF_8), 1 << 16);
+            while (users.hasNext()) {
+                final var user = users.next();
+                writer.write(csvField(user.email()));
+                writer.write(',');
+                writer.write(csvField(user.name()));
+                writer.write(',');
+                writer.write(user.roles() != null ? csvField(String.join(ROLE_SEPARATOR, user.roles())) : "");
+                writer.write(user.malformed() ? ",t\n" : ",f\n");
+            }
+            writer.flush();
+        });
+    }
+
+    /**
+     * Applies the business rules to all staged rows, marking the rejected ones, and inserts the accepted ones into a
+     * tenant.
+     *
+     * @param tenantId The tenant id
+     * @return The number of inserted users
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long mergeStaging(@Nonnull final String tenantId) {
+        // temporary tables are not analyzed automatically
+        jdbcTemplate.execute("ANALYZE user_import_staging");
+        jdbcTemplate.update(REJECT_INVALID);
+        jdbcTemplate.update(REJECT_DUPLICATES);
+        jdbcTemplate.update(REJECT_EMAILS_IN_USE, tenantId);
+        final var accepted = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM user_import_staging WHERE reason IS NULL", Long.class);
+        if (accepted == null || accepted == 0) {
+            return 0L;
+        }
+        final var blocks = reserveIdBlocks(accepted);
+        jdbcTemplate.update(connection -> {
+            final var statement = connection.prepareStatement(ASSIGN_IDS);
+            statement.setArray(1, connection.createArrayOf("bigint", blocks));
+            return statement;
+        });
+        final var users = jdbcTemplate.update(MERGE_USERS, tenantId);
+        jdbcTemplate.update(MERGE_ROLES);
+        return users;
+    }
+
+    /**
+     * Gets the rejected rows of the import in the staging table.
+     *
+     * @param limit The maximum number of rejected rows
+     * @return The rejected rows, by line
+     */
+    @Nonnull
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<Rejection> getRejections(final int limit) {
+        return jdbcTemplate.query(SELECT_REJECTIONS,
+                (rs, row) -> new Rejection(rs.getLong("line"), rs.getString("email"), rs.getString("reason")),
+                limit);
+    }
+
+    // reserves enough blocks of ids at once; unlike moving the sequence with setval, taking its values cannot hand out
+    // ids which a concurrent insert takes as well
+    private Long[] reserveIdBlocks(final long ids) {
+        final var blocks = new ArrayList<Long>();
+        while ((long) blocks.size() * ID_BLOCK_SIZE < ids) {
+            final var missing = ids - (long) blocks.size() * ID_BLOCK_SIZE;
+            jdbcTemplate.queryForList(RESERVE_ID_BLOCKS, Long.class, (missing + ID_BLOCK_SIZE - 1) / ID_BLOCK_SIZE)
+                    .stream()
+                    // the start value of the sequence reserves no full block
+                    .filter(last -> last >= ID_BLOCK_SIZE)
+                    .forEach(blocks::add);
+        }
+        return blocks.toArray(Long[]::new);
+    }
+
+    private long copy(final String sql, final CopyWriter copyWriter) {
+        final Long rows = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            final var copyOut = new PGCopyOutputStream(connection.unwrap(PGConnection.class), sql, 1 << 16);
+            try {
+                copyWriter.write(copyOut);
+                return copyOut.endCopy();
+            } catch (final IOException | RuntimeException ex) {
+                // the connection must leave the copy state, or the transaction cannot be rolled back
+                if (copyOut.isActive()) {
+                    copyOut.cancelCopy();
+                }
+                throw ex instanceof IOException ioException ? new UncheckedIOException(ioException)
+                        : (RuntimeException) ex;
+            }
+        });
+        return rows != null ? rows : 0L;
+    }
+
+    private static String csvField(@Nullable final String value) {
+        if (value == null) {
+            return "";
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static User mapUser(final ResultSet rs) throws SQLException {
+        final var user = new User();
+        user.setId(rs.getLong("id"));
+        user.setTenantId(rs.getString("tenant_id"));
+        user.setEmail(rs.getString("email"));
+        user.setName(rs.getString("name"));
+        user.setRoles(toList(rs.getArray("roles")));
+        return user;
+    }
+
+    private static List<String> toList(final Array array) throws SQLException {
+        return array != null ? Arrays.asList((String[]) array.getArray()) : List.of();
+    }
+
+    /**
+     * An inclusive range of user ids.
+     *
+     * @param from The lowest id
+     * @param to   The highest id
+     */
+    public record IdRange(long from, long to) {
+    }
+
+    /**
+     * A user to be imported.
+     *
+     * @param email     The email
+     * @param name      The name
+     * @param roles     The roles
+     * @param malformed Whether the source of the user could not be parsed, in which case it is rejected
+     */
+    public record StagedUser(@Nullable String email, @Nullable String name, @Nullable List<String> roles,
+            boolean malformed) {
+    }
+
+    /**
+     * A row of an import which has been rejected.
+     *
+     * @param line   The 1-based position of the row within the import
+     * @param email  The email of the row
+     * @param reason The reason for the rejection
+     */
+    public record Rejection(long line, @Nullable String email, @Nonnull String reason) {
+
+        /**
+         * The row could not be parsed.
+         */
+        public static final String MALFORMED = "MALFORMED";
+
+        /**
+         * The row has no email.
+         */
+        public static final String MISSING_EMAIL = "MISSING_EMAIL";
+
+        /**
+         * The row has no roles.
+         */
+        public static final String MISSING_ROLES = "MISSING_ROLES";
+
+        /**
+         * A value of the row exceeds the length of its column.
+         */
+        public static final String VALUE_TOO_LONG = "VALUE_TOO_LONG";
+
+        /**
+         * The email occurs in an earlier row of the import.
+         */
+        public static final String DUPLICATE_EMAIL = "DUPLICATE_EMAIL";
+
+        /**
+         * The email belongs to an existing user.
+         */
+        public static final String EMAIL_IN_USE = "EMAIL_IN_USE";
+    }
+
+    @FunctionalInterface
+    private interface CopyWriter {
+
+        void write(PGCopyOutputStream copyOut) throws IOException;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.users;
+
+import com.sap.refactoring.service.UserChangedEvent;
+import jakarta.annotation.Nonnull;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Evicts users changed by other application instances from the Hibernate second-level cache. Changes made by this
+ * instance need no handling, as Hibernate keeps its own cache consistent with its own writes, except for bulk changes
+ * made with plain JDBC (e.g. imports), which are signalled by an event for all users.
+ */
+@Component
+public class UserCacheEvictor {
+
+    private static final String ROLES_ROLE = User.class.getName() + ".roles";
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Constructor.
+     *
+     * @param entityManagerFactory The entity manager factory
+     */
+    public UserCacheEvictor(final EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * Evicts a remotely changed user, along with its roles and all cached query results, which may contain the user
+     * or, for a previous lookup of its email, the absence of any user. Local bulk changes are evicted once they have
+     * been committed, so that no concurrent reader caches the previous state again.
+     *
+     * @param event The event
+     */
+    @TransactionalEventListener(fallbackExecution = true, condition = "#event.remote() or #event.isAll()")
+    public void onUserChanged(@Nonnull final UserChangedEvent event) {
+        final var cache = entityManagerFactory.getCache().unwrap(Cache.class);
+        if (event.isAll()) {
+            cache.evictEntityData(User.class);
+            cache.evictCollectionData(ROLES_ROLE);
+        } else {
+            cache.evictEntityData(User.class, event.id());
+            cache.evictCollectionData(ROLES_ROLE, event.id());
+        }
+        cache.evictDefaultQueryRegion();
+    }
+}
@@ -1,12 +1,13 @@
 package com.sap.refactoring.users;
 
 import com.sap.refactoring.repository.UserRepository;
+import com.sap.refactoring.tenancy.TenantContext;
 import jakarta.annotation.Nonnull;
+import jakarta.persistence.EntityManagerFactory;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.StreamSupport;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.util.function.Supplier;
+import org.hibernate.Cache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
@@ -15,27 +16,42 @@ import org.springframework.util.StringUtils;
 /**
  * DAO to interact with the {@link UserRepository}. This class includes some basic validation and other logic that would
  * probably be better placed in a service or facade, but for the sake of simplicity these items been left here. All
- * transactions required for writing data are expected to be handled by the repository.
+ * transactions required for writing data are expected to be handled by the repository. All database calls are guarded
+ * by the {@link PersistenceGuard}, so they fail fast while the database is unavailable. Writes are flushed within the
+ * guard, rather than when the transaction commits, so that their statements are guarded as well.
+ * <p>
+ * All operations are scoped to the tenant of the {@link TenantContext}. Hibernate adds the tenant to the queries, but
+ * not to lookups by id, whose results are checked here.
  */
 @Component
 public class UserDao {
 
-    private static final Logger LOG = LoggerFactory.getLogger(UserDao.class);
     private static final String ERR_USER_NOT_NULL = "The user cannot be null";
     private static final String ERR_EMAIL_MUST_BE_PROVIDED = "The email address must be provided";
     private static final String ERR_NUMBER_OF_ROLES = "At least one user role must be provided";
     private static final String ERR_ID_NOT_NULL = "The id must not be null";
+    private static final String ROLES = User.class.getName() + ".roles";
 
     private final UserRepository userRepository;
+    private final PersistenceGuard persistenceGuard;
+    private final EntityManagerFactory entityManagerFactory;
+    private final TenantContext tenantContext;
 
     /**
      * Constructor.
      *
-     * @param userRepository The user repository
+     * @param userRepository       The user repository
+     * @param persistenceGuard     The guard failing fast while the database is unavailable
+     * @param entityManagerFactory The entity manager factory, whose second-level cache serves reads meanwhile
+     * @param tenantContext        The tenant context
      */
     @Autowired
-    public UserDao(final UserRepository userRepository) {
+    public UserDao(final UserRepository userRepository, final PersistenceGuard persistenceGuard,
+            final EntityManagerFactory entityManagerFactory, final TenantContext tenantContext) {
         this.userRepository = userRepository;
+        this.persistenceGuard = persistenceGuard;
+        this.entityManagerFactory = entityManagerFactory;
+        this.tenantContext = tenantContext;
     }
 
     /**
@@ -48,64 +64,71 @@ public class UserDao {
         Assert.notNull(user, ERR_USER_NOT_NULL);
         Assert.hasText(user.getEmail(), ERR_EMAIL_MUST_BE_PROVIDED);
         Assert.isTrue(hasRoles(user), ERR_NUMBER_OF_ROLES);
-        return userRepository.save(user);
+        return persistenceGuard.execute(() -> userRepository.saveAndFlush(user));
     }
 
     /**
      * Gets a list of all users from the database, or all users matching the optional {@code name} parameter. No
-     * pagination or limits are provided.
+     * pagination or limits are provided. The scan spans all partitions, which the database reads in parallel.
      *
      * @param name An optional name filter
      * @return An immutable list of users
      */
     @Nonnull
     public List<User> getUsers(final String name) {
-        try {
-            if (StringUtils.hasText(name)) {
-                return findUsers(name);
-            } else {
-                return StreamSupport.stream(userRepository.findAll().spliterator(), false).toList();
-            }
-        } catch (final Exception ex) {
-            LOG.error("Failed to get users", ex);
-            return List.of();
+        if (StringUtils.hasText(name)) {
+            return findUsers(name);
         }
+        return persistenceGuard.execute(() -> List.copyOf(userRepository.findAll()));
     }
 
     /**
-     * Gets a user by email.
+     * Gets a user by email, reading only the partition holding the user.
      *
      * @param email The email
      * @return An optional user
      */
     public Optional<User> getUserByEmail(@Nonnull final String email) {
         Assert.hasText(email, ERR_EMAIL_MUST_BE_PROVIDED);
-        return userRepository.findByEmail(email);
+        return cachedQuery(() -> userRepository.findByEmail(email));
     }
 
     /**
-     * Gets a user by id.
+     * Gets a user by id. While the database is unavailable, the user is still served if it and its roles are in the
+     * second-level cache.
      *
      * @param id The id
-     * @return An optional user
+     * @return An optional user, empty if the user belongs to another tenant
      */
     public Optional<User> getUserById(@Nonnull final Long id) {
         Assert.notNull(id, ERR_ID_NOT_NULL);
-        return userRepository.findById(id);
+        final var tenantId = tenantContext.getTenantId();
+        return persistenceGuard.execute(() -> userRepository.findById(id),
+                        () -> isCached(id) ? userRepository.findById(id) : null)
+                .filter(user -> tenantId.equals(user.getTenantId()));
+    }
+
+    // the user and its roles, which are cached in a region of their own and would otherwise be read from the database
+    private boolean isCached(final Long id) {
+        final var cache = entityManagerFactory.getCache().unwrap(Cache.class);
+        return cache.containsEntity(User.class, id) && cache.containsCollection(ROLES, id);
     }
 
     /**
-     * Deletes a user from the database.
+     * Deletes a user from the database, unless it belongs to another tenant.
      *
      * @param id The id
      */
     public void deleteUser(@Nonnull final Long id) {
         Assert.notNull(id, ERR_ID_NOT_NULL);
-        userRepository.deleteById(id);
+        getUserById(id).ifPresent(user -> persistenceGuard.run(() -> {
+            userRepository.deleteById(id);
+            userRepository.flush();
+        }));
     }
 
     /**
-     * Updates a user.
+     * Updates a user, which must exist in the tenant.
      *
      * @param userToUpdate The user to update
      */
@@ -113,7 +136,9 @@ public class UserDao {
         Assert.notNull(userToUpdate, ERR_USER_NOT_NULL);
         Assert.hasText(userToUpdate.getEmail(), ERR_EMAIL_MUST_BE_PROVIDED);
         Assert.isTrue(hasRoles(userToUpdate), ERR_NUMBER_OF_ROLES);
-        return Optional.of(userRepository.save(userToUpdate));
+        // the tenant is not updatable, but merging a user without it would clear it in the cached user
+        userToUpdate.setTenantId(tenantContext.getTenantId());
+        return Optional.of(persistenceGuard.execute(() -> userRepository.saveAndFlush(userToUpdate)));
     }
 
     /**
@@ -125,7 +150,27 @@ public class UserDao {
     @Nonnull
     public List<User> findUsers(@Nonnull final String name) {
         Assert.hasText(name, "The name must be provided");
-        return userRepository.findByName(name);
+        return cachedQuery(() -> userRepository.findByName(name));
+    }
+
+    /**
+     * Executes a query whose results are kept in the query cache. Hibernate may cache an empty result for a query that
+     * failed while reading its results, e.g. because the connection was lost, which would then be served until the
+     * users are modified. The query cache is therefore cleared after such a failure.
+     *
+     * @param query The query
+     * @param <T>   The result type
+     * @return The result
+     */
+    private <T> T cachedQuery(final Supplier<T> query) {
+        try {
+            return persistenceGuard.execute(query);
+        } catch (final RuntimeException ex) {
+            if (PersistenceGuard.isFailure(ex)) {
+                entityManagerFactory.getCache().unwrap(Cache.class).evictDefaultQueryRegion();
+            }
+            throw ex;
+        }
     }
 
     static boolean hasRoles(@Nonnull final User user) {
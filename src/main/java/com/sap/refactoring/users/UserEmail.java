@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.users;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.TenantId;
+
+/**
+ * Read-only view of the global email lookup table. As the {@code users} table is hash partitioned on the id, the
+ * email, unique per tenant, is enforced by this table, which is maintained by a database trigger. Looking up the id
+ * here first lets a lookup by email touch a single {@code users} partition. The email only identifies a row together
+ * with the tenant, which Hibernate adds to every query; the entity is never loaded by id.
+ */
+@Entity
+@Immutable
+@Table(name = "user_emails")
+@Getter
+public class UserEmail {
+
+    @TenantId
+    @Column(name = "tenant_id")
+    private String tenantId;
+    @Id
+    private String email;
+    @Column(name = "user_id")
+    private Long userId;
+}
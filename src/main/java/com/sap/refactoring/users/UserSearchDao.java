@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.users;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.Assert;
+
+/**
+ * DAO for the fuzzy search of users by name or email, using the dictionary of words of the {@code search_words}
+ * table and the users of each word in the {@code user_search_words} table.
+ * <p>
+ * A user matches if its name or email contains the search term, or if the term is similar to a part of its name or
+ * email, measured by the word similarity of pg_trgm. The matches are ranked by their distance to the term (one minus
+ * the similarity). Only candidates are checked and ranked: for each word of the term, the words of the dictionary
+ * similar to it are taken nearest first, and their users in this order until a limited number of candidates is
+ * reached. The cost of a search therefore depends on the size of the dictionary and on the number of candidates, not
+ * on the number of users. The ranking is exact as long as there are fewer candidates; otherwise a user whose words are
+ * farther from the term than those of the candidates is not returned. A user is only found through its words, the
+ * runs of letters, so a term without letters, or a mere infix of a word which is not similar to it, matches nothing.
+ * Words of the term shorter than three letters are similar to too many words, and only find candidates if the term has
+ * no longer word.
+ * <p>
+ * The candidates do not depend on the page: every page ranks the same candidates, and continues after the distance and
+ * id of the last match of the previous page. Pages therefore neither skip nor repeat users, unless users are created
+ * or deleted in between, which may change the candidates of a broad term. Every page costs as much as the first one.
+ */
+@Component
+public class UserSearchDao {
+
+    // the threshold of the %> and <% operators, which the index of the dictionary applies, and a generic plan: the
+    // plan does not depend on the term, and planning the partitions of the users for each term costs about as much as
+    // the search itself
+    private static final String CONFIGURE = "SELECT set_config('pg_trgm.word_similarity_threshold', ?, true),"
+            + " set_config('plan_cache_mode', 'force_generic_plan', true)";
+
+    // the minimum length of the words of the term which find candidates, unless all of them are shorter
+    private static final int MIN_WORD_LENGTH = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Constructor.
+     *
+     * @param jdbcTemplate The JDBC template
+     */
+    public UserSearchDao(final JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Searches the users of a tenant.
+     *
+     * @param tenantId      The tenant id
+     * @param term          The search term
+     * @param threshold     The minimum word similarity of a match, between 0 and 1
+     * @param maxCandidates The maximum number of candidates per word of the term which are ranked
+     * @param after         The position after which the matches are returned, or null for the best matches
+     * @param limit         The maximum number of matches
+     * @return The matches, best first
+     */
+    @Nonnull
+    @Transactional(readOnly = true)
+    public List<Match> search(@Nonnull final String tenantId, @Nonnull final String term, final double threshold,
+            final int maxCandidates, @Nullable final Position after, final int limit) {
+        Assert.hasText(term, "The search term must not be empty");
+        Assert.isTrue(threshold >= 0 && threshold <= 1, "The threshold must be between 0 and 1");
+        Assert.isTrue(maxCandidates >= limit, "The maximum number of candidates must not be less than the limit");
+        Assert.isTrue(limit > 0, "The limit must be positive");
+        // the settings only hold for this transaction
+        jdbcTemplate.queryForList(CONFIGURE, Double.toString(threshold));
+
+        final var args = new ArrayList<>();
+        Collections.addAll(args, term, tenantId, term, tenantId, tenantId, term, "%" + escapeLike(term) + "%", term);
+        if (after != null) {
+            Collections.addAll(args, after.distance(), after.id());
+        }
+        args.add(limit);
+        return jdbcTemplate.query(search(maxCandidates, after != null), (rs, row) -> mapMatch(rs), args.toArray());
+    }
+
+    // the candidates containing the term or similar to it, ranked; the number of candidates is part of the statement,
+    // as the generic plan would otherwise assume a share of all users
+    private static String search(final int maxCandidates, final boolean after) {
+        return "SELECT c.id, c.tenant_id, c.email, c.name,"
+                + " ARRAY(SELECT r.roles FROM user_roles r WHERE r.user_id = c.id) AS roles, c.distance"
+                + " FROM (SELECT u.id, u.tenant_id, u.email, u.name, u.search_text <->> ? AS distance FROM users u"
+                + " WHERE u.tenant_id = ? AND u.id IN (" + candidates(maxCandidates) + ")"
+                + " AND (u.search_text ILIKE ? OR u.search_text %> ?)) c"
+                + (after ? " WHERE (c.distance, c.id) > (?, ?)" : "") + " ORDER BY c.distance, c.id LIMIT ?";
+    }
+
+    // the users of the words similar to each word of the term, nearest words first, limited per word of the term
+    private static String candidates(final int maxCandidates) {
+        return "SELECT c.user_id FROM search_words_of(?) AS t(word) CROSS JOIN LATERAL ("
+                + "SELECT p.user_id FROM (SELECT d.word, t.word <<-> d.word AS distance FROM search_words d"
+                + " WHERE d.tenant_id = ? AND t.word <% d.word ORDER BY distance, d.word) d"
+                + " CROSS JOIN LATERAL (SELECT p.user_id FROM user_search_words p"
+                + " WHERE p.tenant_id = ? AND p.word = d.word ORDER BY p.user_id LIMIT " + maxCandidates + ") p"
+                + " ORDER BY d.distance, d.word, p.user_id LIMIT " + maxCandidates + ") c"
+                + " WHERE length(t.word) >= least(" + MIN_WORD_LENGTH
+                + ", (SELECT max(length(w)) FROM search_words_of(?) AS w))";
+    }
+
+    // the term is matched literally, not as a pattern
+    private static String escapeLike(final String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static Match mapMatch(final ResultSet rs) throws SQLException {
+        final var user = new User();
+        user.setId(rs.getLong("id"));
+        user.setTenantId(rs.getString("tenant_id"));
+        user.setEmail(rs.getString("email"));
+        user.setName(rs.getString("name"));
+        user.setRoles(toList(rs.getArray("roles")));
+        return new Match(user, new Position(rs.getFloat("distance"), user.getId()));
+    }
+
+    private static List<String> toList(final Array array) throws SQLException {
+        return array != null ? Arrays.asList((String[]) array.getArray()) : List.of();
+    }
+
+    /**
+     * A user matching a search.
+     *
+     * @param user     The user, which is not attached to any persistence context
+     * @param position The position of the match within the results
+     */
+    public record Match(@Nonnull User user, @Nonnull Position position) {
+    }
+
+    /**
+     * The position of a match within the results of a search.
+     *
+     * @param distance The distance of the user to the search term, between 0 (best) and 1
+     * @param id       The id of the user, which orders matches of the same distance
+     */
+    public record Position(float distance, long id) {
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.web.cache;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configuration of the {@link UserResponseCache}.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "users.response-cache")
+public class ResponseCacheProperties {
+
+    /**
+     * Whether serialized user responses are cached.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Upper bound for the total size of all cached payloads (plain and compressed), in bytes.
+     */
+    private long maxBytes = 16L * 1024L * 1024L;
+
+    /**
+     * Payloads smaller than this are never compressed, as gzip would only add overhead.
+     */
+    private int compressionMinSize = 512;
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.web.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sap.refactoring.data.UserData;
+import com.sap.refactoring.service.UserChangedEvent;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.zip.GZIPOutputStream;
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * A bounded, least-recently-used cache of serialized {@code GET /users/{id}} responses. A cache hit is answered by
+ * writing the stored bytes, skipping both the {@link com.sap.refactoring.converter.UserDataConverter} and Jackson.
+ * <p>
+ * Entries are evicted once the owning transaction of a {@link UserChangedEvent} has committed. To prevent a reader that
+ * loaded a user before such a commit from re-populating the cache with stale data, callers obtain a {@link #stamp()}
+ * before reading from the database and hand it to {@link #put(String, Long, long, UserData, boolean)}; the entry is
+ * only stored if no eviction has happened in between.
+ * <p>
+ * The gzip encoding of an entry is only created, and accounted for, on the first request which accepts it.
+ * <p>
+ * User ids are unique across tenants, an entry only answers requests of the tenant of its user.
+ */
+@Component
+public class UserResponseCache {
+
+    private final ResponseCacheProperties properties;
+    private final ObjectMapper objectMapper;
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long generation;
+    private long totalBytes;
+
+    /**
+     * Constructor.
+     *
+     * @param properties   The cache configuration
+     * @param objectMapper The object mapper used to serialize the cached responses
+     */
+    public UserResponseCache(final ResponseCacheProperties properties, final ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Checks if a client accepts gzip encoded responses.
+     *
+     * @param acceptEncoding The value of the {@code Accept-Encoding} request header, optional
+     * @return True if gzip is acceptable
+     */
+    public static boolean acceptsGzip(@Nullable final String acceptEncoding) {
+        if (StringUtils.isBlank(acceptEncoding)) {
+            return false;
+        }
+        for (final var token : acceptEncoding.split(",")) {
+            final var coding = StringUtils.deleteWhitespace(token).toLowerCase();
+            if (coding.equals("gzip") || coding.equals("*")
+                    || (coding.startsWith("gzip;") && !coding.matches("gzip;q=0(\\.0*)?"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the current cache stamp, which must be obtained before the user is read from the database.
+     *
+     * @return The stamp
+     */
+    public synchronized long stamp() {
+        return generation;
+    }
+
+    /**
+     * Gets a cached response.
+     *
+     * @param tenantId   The tenant of the request
+     * @param id         The user id
+     * @param acceptGzip Whether the client accepts a gzip encoded response
+     * @return The payload, or null if the user is not cached for the tenant
+     */
+    @Nullable
+    public Payload get(@Nonnull final String tenantId, @Nonnull final Long id, final boolean acceptGzip) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        final Entry entry;
+        synchronized (this) {
+            entry = entries.get(id);
+        }
+        if (entry == null || !entry.getTenantId().equals(tenantId)) {
+            return null;
+        }
+        if (acceptGzip && entry.isCompressible() && entry.getGzip() == null) {
+            // compressed outside the lock, a concurrent request may do the same, only the first result is kept
+            final var gzip = compress(entry.getJson());
+            synchronized (this) {
+                if (entry.getGzip() == null) {
+                    entry.setGzip(gzip);
+                    if (entries.get(id) == entry) {
+                        totalBytes += gzip.length;
+                        trim();
+                    }
+                }
+            }
+        }
+        return entry.payload(acceptGzip);
+    }
+
+    /**
+     * Serializes a user and caches the result, unless the cache has been invalidated since the given stamp was taken.
+     *
+     * @param tenantId   The tenant of the user
+     * @param id         The user id
+     * @param stamp      The stamp obtained before the user was read
+     * @param user       The user DTO
+     * @param acceptGzip Whether the client accepts a gzip encoded response
+     * @return The payload to send to the client
+     */
+    @Nonnull
+    public Payload put(@Nonnull final String tenantId, @Nonnull final Long id, final long stamp,
+            @Nonnull final UserData user, final boolean acceptGzip) {
+        final var json = serialize(user);
+        final var entry = new Entry(tenantId, json, json.length >= properties.getCompressionMinSize());
+        if (acceptGzip && entry.isCompressible()) {
+            entry.setGzip(compress(json));
+        }
+
+        if (properties.isEnabled() && entry.size() <= properties.getMaxBytes()) {
+            synchronized (this) {
+                if (stamp == generation) {
+                    final var previous = entries.put(id, entry);
+                    totalBytes += entry.size() - (previous != null ? previous.size() : 0);
+                    trim();
+                }
+            }
+        }
+        return entry.payload(acceptGzip);
+    }
+
+    /**
+     * Evicts a user from the cache.
+     *
+     * @param id The user id
+     */
+    public synchronized void evict(@Nonnull final Long id) {
+        generation++;
+        final var previous = entries.remove(id);
+        if (previous != null) {
+            totalBytes -= previous.size();
+        }
+    }
+
+    /**
+     * Evicts all users from the cache.
+     */
+    public synchronized void evictAll() {
+        generation++;
+        entries.clear();
+        totalBytes = 0L;
+    }
+
+    /**
+     * Evicts the user affected by a change, once the change has been committed.
+     *
+     * @param event The event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(@Nonnull final UserChangedEvent event) {
+        if (event.isAll()) {
+            evictAll();
+        } else {
+            evict(event.id());
+        }
+    }
+
+    private void trim() {
+        final var iterator = entries.values().iterator();
+        while (totalBytes > properties.getMaxBytes() && iterator.hasNext()) {
+            totalBytes -= iterator.next().size();
+            iterator.remove();
+        }
+    }
+
+    private byte[] serialize(final UserData user) {
+        try {
+            return objectMapper.writeValueAsBytes(user);
+        } catch (final JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static byte[] compress(final byte[] json) {
+        final var out = new ByteArrayOutputStream(json.length);
+        try (var gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * A cached response body.
+     *
+     * @param body    The serialized body, must not be modified
+     * @param gzipped Whether the body is gzip encoded
+     */
+    public record Payload(@Nonnull byte[] body, boolean gzipped) {
+    }
+
+    @Getter
+    private static final class Entry {
+
+        private final String tenantId;
+        private final byte[] json;
+        private final boolean compressible;
+        // guarded by the cache
+        @Setter
+        private volatile byte[] gzip;
+
+        Entry(final String tenantId, final byte[] json, final boolean compressible) {
+            this.tenantId = tenantId;
+            this.json = json;
+            this.compressible = compressible;
+        }
+
+        long size() {
+            final var compressed = gzip;
+            return json.length + (compressed != null ? compressed.length : 0L);
+        }
+
+        Payload payload(final boolean acceptGzip) {
+            final var compressed = gzip;
+            return acceptGzip && compressed != null ? new Payload(compressed, true) : new Payload(json, false);
+        }
+    }
+}
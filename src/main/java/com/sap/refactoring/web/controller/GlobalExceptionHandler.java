@@ -4,7 +4,14 @@
 package com.sap.refactoring.web.controller;
 
 import com.sap.refactoring.data.Error;
+import com.sap.refactoring.logging.ErrorLogger;
+import com.sap.refactoring.logging.RequestLoggingFilter;
+import com.sap.refactoring.service.export.TooManyExportsException;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
 import java.util.Date;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
@@ -13,11 +20,25 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
 /**
- * Global exception handler.
+ * Global exception handler. Server errors are logged through the {@link ErrorLogger}, so that an error storm does not
+ * log the same stack trace over and over again; client errors are not logged.
  */
 @ControllerAdvice
 public class GlobalExceptionHandler {
 
+    private static final Logger LOG = LoggerFactory.getLogger(GlobalExceptionHandler.class);
+
+    private final ErrorLogger errorLogger;
+
+    /**
+     * Constructor.
+     *
+     * @param errorLogger The error logger
+     */
+    public GlobalExceptionHandler(final ErrorLogger errorLogger) {
+        this.errorLogger = errorLogger;
+    }
+
     /**
      * Handles data integrity violations (e.g. email address already in use).
      *
@@ -26,10 +47,30 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(DataIntegrityViolationException.class)
     public ResponseEntity<Error> handleDataIntegrityViolationException(final DataIntegrityViolationException e) {
-        final var error = new Error();
-        error.setTimestamp(new Date());
-        error.setMessage(e.getMessage());
-        return new ResponseEntity<>(error, HttpStatus.CONFLICT);
+        return createResponse(e, HttpStatus.CONFLICT);
+    }
+
+    /**
+     * Handles calls rejected while the database is unavailable or overloaded, see the
+     * {@link com.sap.refactoring.users.PersistenceGuard}. These are expected to be frequent and are not logged.
+     *
+     * @param e The exception
+     * @return A 503 response
+     */
+    @ExceptionHandler({CallNotPermittedException.class, BulkheadFullException.class})
+    public ResponseEntity<Error> handleRejectedCall(final RuntimeException e) {
+        return createResponse(e, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    /**
+     * Handles file exports rejected while the maximum number of exports are running.
+     *
+     * @param e The exception
+     * @return A 429 response
+     */
+    @ExceptionHandler(TooManyExportsException.class)
+    public ResponseEntity<Error> handleTooManyExports(final TooManyExportsException e) {
+        return createResponse(e, HttpStatus.TOO_MANY_REQUESTS);
     }
 
     /**
@@ -40,10 +81,8 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(DataAccessException.class)
     public ResponseEntity<Error> handleDataAccessException(final DataAccessException e) {
-        final var error = new Error();
-        error.setTimestamp(new Date());
-        error.setMessage(e.getMessage());
-        return new ResponseEntity<>(error, HttpStatus.INTERNAL_SERVER_ERROR);
+        errorLogger.error(LOG, "Data access failed", e);
+        return createResponse(e, HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
     /**
@@ -54,10 +93,7 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<Error> handleIllegalArgumentException(final IllegalArgumentException e) {
-        final var error = new Error();
-        error.setTimestamp(new Date());
-        error.setMessage(e.getMessage());
-        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+        return createResponse(e, HttpStatus.BAD_REQUEST);
     }
 
     /**
@@ -68,9 +104,15 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Error> handleException(final Exception e) {
+        errorLogger.error(LOG, "Request failed", e);
+        return createResponse(e, HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    private static ResponseEntity<Error> createResponse(final Exception e, final HttpStatus status) {
         final var error = new Error();
         error.setTimestamp(new Date());
         error.setMessage(e.getMessage());
-        return new ResponseEntity<>(error, HttpStatus.INTERNAL_SERVER_ERROR);
+        error.setCorrelationId(RequestLoggingFilter.getCorrelationId());
+        return new ResponseEntity<>(error, status);
     }
 }
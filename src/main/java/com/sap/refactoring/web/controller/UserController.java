@@ -1,11 +1,16 @@
 package com.sap.refactoring.web.controller;
 
 import com.sap.refactoring.data.UserData;
+import com.sap.refactoring.diagnostics.QueryBudget;
 import com.sap.refactoring.service.UserService;
+import com.sap.refactoring.tenancy.TenantContext;
+import com.sap.refactoring.web.cache.UserResponseCache;
 import java.net.URI;
 import java.util.List;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -14,11 +19,12 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 
 /**
- * Controller for the /users API.
+ * Controller for the /users API, limited to the users of the tenant of the request.
  * <ul><strong>Operations:</strong>
  *     <li>GET /users -> Get all users</li>
  *     <li>GET /users?name=value -> Get all users where name equals {@code value}</li>
@@ -33,15 +39,22 @@ import org.springframework.web.bind.annotation.RequestParam;
 public class UserController {
 
     private final UserService userService;
+    private final UserResponseCache userResponseCache;
+    private final TenantContext tenantContext;
 
     /**
      * Constructor.
      *
-     * @param userService The user service
+     * @param userService       The user service
+     * @param userResponseCache The cache for serialized user responses
+     * @param tenantContext     The tenant context
      */
     @Autowired
-    public UserController(final UserService userService) {
+    public UserController(final UserService userService, final UserResponseCache userResponseCache,
+            final TenantContext tenantContext) {
         this.userService = userService;
+        this.userResponseCache = userResponseCache;
+        this.tenantContext = tenantContext;
     }
 
     /**
@@ -50,23 +63,43 @@ public class UserController {
      * @param name Optional name filter
      * @return A list of users
      */
+    @QueryBudget(statements = 1)
     @GetMapping
     public ResponseEntity<List<UserData>> getUsers(@RequestParam(value = "name", required = false) final String name) {
         return ResponseEntity.ok(userService.getUsers(name));
     }
 
     /**
-     * Gets a user by id.
+     * Gets a user by id. The serialized response is served from the {@link UserResponseCache} where possible, gzip
+     * encoded if the client accepts it.
      *
-     * @param id The id
-     * @return The user, or a 404 if none is found for that email
+     * @param id             The id
+     * @param acceptEncoding The accepted content encodings, optional
+     * @return The serialized user, or a 404 if none is found for that email
      */
+    @QueryBudget(statements = 2)
     @GetMapping("/{id}")
-    public ResponseEntity<UserData> getUser(@PathVariable(value = "id") final Long id) {
-        final var user = userService.getUser(id);
-        return user != null
-                ? ResponseEntity.ok(user)
-                : ResponseEntity.notFound().build();
+    public ResponseEntity<byte[]> getUser(@PathVariable(value = "id") final Long id,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) final String acceptEncoding) {
+        final var acceptGzip = UserResponseCache.acceptsGzip(acceptEncoding);
+        final var tenantId = tenantContext.getTenantId();
+        var payload = userResponseCache.get(tenantId, id, acceptGzip);
+        if (payload == null) {
+            final var stamp = userResponseCache.stamp();
+            final var user = userService.getUser(id);
+            if (user == null) {
+                return ResponseEntity.notFound().build();
+            }
+            payload = userResponseCache.put(tenantId, id, stamp, user, acceptGzip);
+        }
+
+        final var response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (payload.gzipped()) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(payload.body());
     }
 
     /**
@@ -75,6 +108,7 @@ public class UserController {
      * @param user The user to create
      * @return The new user, or a 409 if a user with that email already exists
      */
+    @QueryBudget(statements = 7)
     @PostMapping
     public ResponseEntity<UserData> addUser(@RequestBody final UserData user) {
         final var createdUser = userService.createUser(user);
@@ -91,6 +125,7 @@ public class UserController {
      * @return The updated user with a 201, or a 404 if no user exists for that id. If the email in the path and the
      * email in the user payload do not match, a 400 is returned.
      */
+    @QueryBudget(statements = 7)
     @PutMapping("/{id}")
     public ResponseEntity<UserData> updateUser(@PathVariable(name = "id") final Long id,
             @RequestBody final UserData userData) {
@@ -113,6 +148,7 @@ public class UserController {
      * @param id The user id
      * @return Returns a 204 in all scenarios; we do not indicate if there was actually any user deletion
      */
+    @QueryBudget(statements = 4)
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteUser(@PathVariable(value = "id") final Long id) {
 
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.web.controller;
+
+import com.sap.refactoring.converter.DirectoryEntryDataConverter;
+import com.sap.refactoring.data.DirectoryEntryData;
+import com.sap.refactoring.diagnostics.QueryBudget;
+import com.sap.refactoring.directory.UserDirectory;
+import com.sap.refactoring.directory.UserDirectoryEntry;
+import com.sap.refactoring.tenancy.TenantContext;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.Assert;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+/**
+ * Controller for the /users/directory API, which resolves users of the tenant of the request to their id and roles
+ * from the {@link UserDirectory}.
+ * <ul><strong>Operations:</strong>
+ *     <li>GET /users/directory?email=value -> Get the user with the given email</li>
+ *     <li>GET /users/directory/{id} -> Get the user with the given id</li>
+ * </ul>
+ */
+@Controller
+@RequestMapping("/users/directory")
+public class UserDirectoryController {
+
+    private final UserDirectory userDirectory;
+    private final DirectoryEntryDataConverter directoryEntryDataConverter;
+    private final TenantContext tenantContext;
+
+    /**
+     * Constructor.
+     *
+     * @param userDirectory               The user directory
+     * @param directoryEntryDataConverter The directory entry converter
+     * @param tenantContext               The tenant context
+     */
+    public UserDirectoryController(final UserDirectory userDirectory,
+            final DirectoryEntryDataConverter directoryEntryDataConverter, final TenantContext tenantContext) {
+        this.userDirectory = userDirectory;
+        this.directoryEntryDataConverter = directoryEntryDataConverter;
+        this.tenantContext = tenantContext;
+    }
+
+    /**
+     * Gets a user by email.
+     *
+     * @param email The email
+     * @return The user, or a 404 if none is found for that email
+     */
+    @QueryBudget(statements = 1)
+    @GetMapping
+    public ResponseEntity<DirectoryEntryData> getByEmail(@RequestParam(value = "email") final String email) {
+        Assert.hasText(email, "The email must not be empty");
+        return toResponse(userDirectory.findByEmail(tenantContext.getTenantId(), email));
+    }
+
+    /**
+     * Gets a user by id.
+     *
+     * @param id The id
+     * @return The user, or a 404 if none is found for that id
+     */
+    @QueryBudget(statements = 1)
+    @GetMapping("/{id}")
+    public ResponseEntity<DirectoryEntryData> getById(@PathVariable(value = "id") final Long id) {
+        return toResponse(userDirectory.findById(tenantContext.getTenantId(), id));
+    }
+
+    private ResponseEntity<DirectoryEntryData> toResponse(final UserDirectoryEntry entry) {
+        return entry != null
+                ? ResponseEntity.ok(directoryEntryDataConverter.convert(entry))
+                : ResponseEntity.notFound().build();
+    }
+}
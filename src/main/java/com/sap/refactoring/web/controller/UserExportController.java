@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.web.controller;
+
+import com.sap.refactoring.converter.ExportJobDataConverter;
+import com.sap.refactoring.data.ExportJobData;
+import com.sap.refactoring.service.export.ExportFormat;
+import com.sap.refactoring.service.export.UserExportService;
+import com.sap.refactoring.tenancy.TenantContext;
+import java.net.URI;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Controller for the /users/exports API, which exports the users of the tenant of the request.
+ * <ul><strong>Operations:</strong>
+ *     <li>GET /users/exports/stream?format=csv&amp;compression=gzip -> Stream all users</li>
+ *     <li>POST /users/exports?name=value&amp;format=csv&amp;compression=gzip -> Start, or resume, an export to a file
+ *     </li>
+ *     <li>GET /users/exports/{name} -> Get the progress of an export to a file</li>
+ * </ul>
+ * The format is either {@code ndjson} (default) or {@code csv}, the compression either {@code none} (default) or
+ * {@code gzip}.
+ */
+@Controller
+@RequestMapping("/users/exports")
+public class UserExportController {
+
+    private static final String GZIP = "gzip";
+
+    private final UserExportService userExportService;
+    private final ExportJobDataConverter exportJobDataConverter;
+    private final TenantContext tenantContext;
+
+    /**
+     * Constructor.
+     *
+     * @param userExportService      The user export service
+     * @param exportJobDataConverter The export progress converter
+     * @param tenantContext          The tenant context
+     */
+    public UserExportController(final UserExportService userExportService,
+            final ExportJobDataConverter exportJobDataConverter, final TenantContext tenantContext) {
+        this.userExportService = userExportService;
+        this.exportJobDataConverter = exportJobDataConverter;
+        this.tenantContext = tenantContext;
+    }
+
+    /**
+     * Streams all users. The response is written while the users are read, so memory usage does not depend on the
+     * number of users.
+     *
+     * @param format      The format
+     * @param compression The compression
+     * @return The streamed users
+     */
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamUsers(
+            @RequestParam(value = "format", defaultValue = "ndjson") final String format,
+            @RequestParam(value = "compression", defaultValue = "none") final String compression) {
+        final var exportFormat = parseFormat(format);
+        final var gzip = parseCompression(compression);
+        // the body is written by another thread, which does not act for the tenant of the request
+        final var tenantId = tenantContext.getTenantId();
+        final StreamingResponseBody body = out -> userExportService.export(tenantId, out, exportFormat, gzip);
+        final var fileName = "users." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .contentType(gzip ? MediaType.parseMediaType("application/gzip") : exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
+    }
+
+    /**
+     * Starts an export to a file, or resumes it if it has been interrupted. If the export is already running, its
+     * progress is returned.
+     *
+     * @param name        The name of the export
+     * @param format      The format
+     * @param compression The compression
+     * @return The progress of the export with a 202, or a 429 if the maximum number of exports are running
+     */
+    @PostMapping
+    public ResponseEntity<ExportJobData> startExport(@RequestParam(value = "name") final String name,
+            @RequestParam(value = "format", defaultValue = "ndjson") final String format,
+            @RequestParam(value = "compression", defaultValue = "none") final String compression) {
+        final var job = userExportService.startExport(tenantContext.getTenantId(), name, parseFormat(format),
+                parseCompression(compression));
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .location(URI.create("/users/exports/" + job.getName()))
+                .body(exportJobDataConverter.convert(job));
+    }
+
+    /**
+     * Gets the progress of an export to a file.
+     *
+     * @param name The name of the export
+     * @return The progress, or a 404 if no such export has been started
+     */
+    @GetMapping("/{name}")
+    public ResponseEntity<ExportJobData> getExport(@PathVariable(value = "name") final String name) {
+        return userExportService.getExport(tenantContext.getTenantId(), name)
+                .map(exportJobDataConverter::convert)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    private static ExportFormat parseFormat(final String format) {
+        for (final var candidate : ExportFormat.values()) {
+            if (candidate.getExtension().equalsIgnoreCase(format)) {
+                return candidate;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported export format: " + format);
+    }
+
+    private static boolean parseCompression(final String compression) {
+        if ("none".equalsIgnoreCase(compression)) {
+            return false;
+        }
+        if (GZIP.equalsIgnoreCase(compression)) {
+            return true;
+        }
+        throw new IllegalArgumentException("Unsupported compression: " + compression);
+    }
+}
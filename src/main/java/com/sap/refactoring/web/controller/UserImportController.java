@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.web.controller;
+
+import com.sap.refactoring.data.ImportResultData;
+import com.sap.refactoring.service.export.ExportFormat;
+import com.sap.refactoring.service.imports.UserImportService;
+import com.sap.refactoring.tenancy.TenantContext;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+/**
+ * Controller for the /users/imports API, which imports users into the tenant of the request.
+ * <ul><strong>Operations:</strong>
+ *     <li>POST /users/imports -> Import users, pass a CSV ({@code text/csv}) or NDJSON ({@code application/x-ndjson})
+ *     file in the body, optionally with {@code Content-Encoding: gzip}</li>
+ * </ul>
+ */
+@Controller
+@RequestMapping("/users/imports")
+public class UserImportController {
+
+    private final UserImportService userImportService;
+    private final TenantContext tenantContext;
+
+    /**
+     * Constructor.
+     *
+     * @param userImportService The user import service
+     * @param tenantContext     The tenant context
+     */
+    public UserImportController(final UserImportService userImportService, final TenantContext tenantContext) {
+        this.userImportService = userImportService;
+        this.tenantContext = tenantContext;
+    }
+
+    /**
+     * Imports users. The body is streamed into the database while it is received.
+     *
+     * @param contentType     The content type, which determines the format
+     * @param contentEncoding The content encoding, optional
+     * @param body            The body
+     * @return The result with the first rejected rows, or a 400 if a CSV file does not start with the header
+     * @throws IOException If the body cannot be read
+     */
+    @PostMapping(consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<ImportResultData> importUsers(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) final MediaType contentType,
+            @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) final String contentEncoding,
+            final InputStream body) throws IOException {
+        final var format = ExportFormat.CSV.getMediaType().isCompatibleWith(contentType)
+                ? ExportFormat.CSV
+                : ExportFormat.NDJSON;
+        final InputStream in;
+        if (contentEncoding == null || "identity".equalsIgnoreCase(contentEncoding)) {
+            in = body;
+        } else if ("gzip".equalsIgnoreCase(contentEncoding)) {
+            in = new GZIPInputStream(body, 1 << 16);
+        } else {
+            throw new IllegalArgumentException("Unsupported content encoding: " + contentEncoding);
+        }
+        return ResponseEntity.ok(userImportService.importUsers(tenantContext.getTenantId(), in, format));
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2024 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sap.refactoring.web.controller;
+
+import com.sap.refactoring.data.SearchResultData;
+import com.sap.refactoring.diagnostics.QueryBudget;
+import com.sap.refactoring.service.search.UserSearchService;
+import com.sap.refactoring.tenancy.TenantContext;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+/**
+ * Controller for the /users/search API, which searches the users of the tenant of the request by partial or
+ * misspelled names and emails.
+ * <ul><strong>Operations:</strong>
+ *     <li>GET /users/search?q=value[&amp;limit=n][&amp;cursor=value] -> Get the best matches, and the cursor of the
+ *     next page if there may be more</li>
+ * </ul>
+ * The matches of a broad term, such as a common first name, are the best of a limited number of candidates, not
+ * necessarily the best of all users, and paging ends after them. A more specific term yields exact results.
+ */
+@Controller
+@RequestMapping("/users/search")
+public class UserSearchController {
+
+    private final UserSearchService userSearchService;
+    private final TenantContext tenantContext;
+
+    /**
+     * Constructor.
+     *
+     * @param userSearchService The user search service
+     * @param tenantContext     The tenant context
+     */
+    public UserSearchController(final UserSearchService userSearchService, final TenantContext tenantContext) {
+        this.userSearchService = userSearchService;
+        this.tenantContext = tenantContext;
+    }
+
+    /**
+     * Searches users.
+     *
+     * @param term   The search term, at least 3 characters by default
+     * @param limit  The maximum number of matches, optional
+     * @param cursor The cursor of the previous page, optional
+     * @return The matches, best first, or a 400 if the term is too short or the limit or the cursor is invalid
+     */
+    @QueryBudget(statements = 2)
+    @GetMapping
+    public ResponseEntity<SearchResultData> search(@RequestParam(value = "q") final String term,
+            @RequestParam(value = "limit", required = false) final Integer limit,
+            @RequestParam(value = "cursor", required = false) final String cursor) {
+        return ResponseEntity.ok(userSearchService.search(tenantContext.getTenantId(), term, limit, cursor));
+    }
+}
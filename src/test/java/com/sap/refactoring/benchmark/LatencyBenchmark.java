@@ -0,0 +1,104 @@
+package com.sap.refactoring.benchmark;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntConsumer;
+
+/**
+ * Minimal closed-loop latency benchmark: a number of threads invoke an operation back to back for a given duration,
+ * and the latency distribution of all invocations is reported. Used by the tests tagged {@code benchmark}.
+ */
+public final class LatencyBenchmark {
+
+    private LatencyBenchmark() {
+        // utility class
+    }
+
+    /**
+     * Runs an operation concurrently, after running it for a warm-up period whose results are discarded.
+     *
+     * @param name      The name of the measurement
+     * @param threads   The number of concurrent threads
+     * @param warmUp    The warm-up duration
+     * @param duration  The measured duration
+     * @param operation The operation, which is passed a random non-negative int
+     * @return The result
+     */
+    public static Result run(final String name, final int threads, final Duration warmUp, final Duration duration,
+            final IntConsumer operation) {
+        measure(name, threads, warmUp, operation);
+        return measure(name, threads, duration, operation);
+    }
+
+    private static Result measure(final String name, final int threads, final Duration duration,
+            final IntConsumer operation) {
+        final var samples = new ArrayList<long[]>();
+        final var workers = new ArrayList<Thread>();
+        final var deadline = System.nanoTime() + duration.toNanos();
+        for (int i = 0; i < threads; i++) {
+            final var worker = new Thread(() -> {
+                var latencies = new long[1024];
+                var count = 0;
+                while (System.nanoTime() < deadline) {
+                    final var argument = ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE);
+                    final var start = System.nanoTime();
+                    operation.accept(argument);
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = System.nanoTime() - start;
+                }
+                synchronized (samples) {
+                    samples.add(Arrays.copyOf(latencies, count));
+                }
+            }, name + "-" + i);
+            workers.add(worker);
+            worker.start();
+        }
+        for (final var worker : workers) {
+            try {
+                worker.join();
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(ex);
+            }
+        }
+        return Result.of(name, duration, samples);
+    }
+
+    /**
+     * The latency distribution of a benchmark run, in microseconds.
+     *
+     * @param name       The name of the measurement
+     * @param operations The number of operations
+     * @param throughput The number of operations per second
+     * @param p50        The median latency
+     * @param p95        The 95th percentile latency
+     * @param p99        The 99th percentile latency
+     * @param max        The maximum latency
+     */
+    public record Result(String name, long operations, double throughput, long p50, long p95, long p99, long max) {
+
+        static Result of(final String name, final Duration duration, final List<long[]> samples) {
+            final var all = samples.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+            if (all.length == 0) {
+                return new Result(name, 0, 0, 0, 0, 0, 0);
+            }
+            return new Result(name, all.length, all.length / (duration.toMillis() / 1000d),
+                    percentile(all, 0.50), percentile(all, 0.95), percentile(all, 0.99), all[all.length - 1] / 1000);
+        }
+
+        private static long percentile(final long[] sorted, final double percentile) {
+            return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)] / 1000;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-40s %10d ops %10.0f ops/s  p50 %8d us  p95 %8d us  p99 %8d us  max %8d us",
+                    name, operations, throughput, p50, p95, p99, max);
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package com.sap.refactoring.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+
+/**
+ * Generates synthetic users and loads them into the database, to measure how queries, indexes and caches scale with
+ * the number of users. Run with {@code ./gradlew generateUsers -Pusers=1000000}, any setting of {@link Settings} can
+ * be passed the same way. The application drops the schema when it starts, unless it is started with
+ * {@code --spring.liquibase.drop-first=false}.
+ * <p>
+ * Every attribute of the n-th user is derived from the seed and n alone, so a dataset can be extended to a larger size
+ * later on, and is the same as if it had been generated at once. Only the ids depend on the state of the database.
+ * The names are drawn from a fixed number of distinct names, the roles and the domains of the emails from a fixed
+ * number of roles and domains; each with a Zipf distribution of configurable skew, where 0 is uniform.
+ * <p>
+ * The users are loaded in batches with {@code COPY}, each in its own transaction. The ids of a batch are reserved
+ * from the sequence at once, which does not collide with the ids allocated by Hibernate as long as the application
+ * does not create users while the ids are reserved. As a superuser, as in the local database of docker-compose, the
+ * triggers are skipped during the load, which more than doubles its speed.
+ */
+public final class UserDataGenerator {
+
+    private static final List<String> FIRST_NAMES = List.of("James", "Mary", "Robert", "Patricia", "John", "Jennifer",
+            "Michael", "Linda", "David", "Elizabeth", "William", "Barbara", "Richard", "Susan", "Joseph", "Jessica",
+            "Thomas", "Sarah", "Charles", "Karen", "Daniel", "Lisa", "Matthew", "Nancy", "Anthony", "Betty", "Mark",
+            "Sandra", "Steven", "Ashley", "Paul", "Emily", "Andrew", "Donna", "Joshua", "Michelle", "Kevin", "Carol",
+            "Brian", "Amanda");
+    private static final List<String> SYLLABLES = List.of("ka", "lo", "mi", "ren", "tor", "vas", "bel", "dun", "fis",
+            "gar", "hol", "jen", "kin", "lar", "mor", "nel", "pol", "quin", "ros", "sel", "tam", "ul", "ver", "wen",
+            "yor", "zan", "bri", "cha", "dor", "el");
+
+    private static final String INSERT_SEARCH_WORDS = "WITH words AS (INSERT INTO user_search_words (tenant_id, word,"
+            + " user_id) SELECT u.tenant_id, w, u.id FROM users u CROSS JOIN LATERAL search_words_of(u.search_text) w"
+            + " WHERE u.id BETWEEN ? AND ? RETURNING tenant_id, word)"
+            + " INSERT INTO search_words (tenant_id, word) SELECT DISTINCT tenant_id, word FROM words"
+            + " ON CONFLICT DO NOTHING";
+
+    private final Settings settings;
+    private final Zipf names;
+    private final Zipf roles;
+    private final Zipf domains;
+
+    /**
+     * Constructor.
+     *
+     * @param settings The settings
+     */
+    public UserDataGenerator(final Settings settings) {
+        this.settings = settings;
+        this.names = new Zipf(settings.names(), settings.nameSkew());
+        this.roles = new Zipf(settings.roles(), settings.roleSkew());
+        this.domains = new Zipf(settings.domains(), settings.emailSkew());
+    }
+
+    /**
+     * Generates the users of the settings and loads them into the database configured in application.properties, as
+     * the user given in the DATABASE_USER and DATABASE_PASS environment variables.
+     *
+     * @param args The settings, as {@code --name=value}
+     * @throws Exception If the users cannot be loaded
+     */
+    public static void main(final String[] args) throws Exception {
+        final var settings = Settings.parse(args);
+        final var url = PropertiesLoaderUtils.loadAllProperties("application.properties")
+                .getProperty("spring.datasource.url");
+        try (var connection = DriverManager.getConnection(url, System.getenv("DATABASE_USER"),
+                System.getenv("DATABASE_PASS"))) {
+            final var started = System.nanoTime();
+            final var generator = new UserDataGenerator(settings);
+            for (long from = settings.from(); from < settings.users(); from += settings.batchSize()) {
+                final var to = Math.min(settings.users(), from + settings.batchSize());
+                generator.load(connection, from, to);
+                final var seconds = (System.nanoTime() - started) / 1e9;
+                System.out.printf("Loaded %d users, %.0f users/s%n", to, (to - settings.from()) / seconds);
+            }
+            try (var statement = connection.createStatement()) {
+                statement.execute("ANALYZE users, user_roles, user_emails, search_words, user_search_words");
+            }
+        }
+    }
+
+    /**
+     * Loads the users from the {@code from}-th (inclusive) to the {@code to}-th (exclusive) in one transaction.
+     *
+     * @param connection The connection, which is left in auto-commit mode
+     * @param from       The number of the first user
+     * @param to         The number after the last user
+     * @throws SQLException If the users cannot be loaded
+     * @throws IOException  If the users cannot be copied
+     */
+    public void load(final Connection connection, final long from, final long to) throws SQLException, IOException {
+        if (to <= from) {
+            return;
+        }
+        connection.setAutoCommit(false);
+        try {
+            final long lastId;
+            try (var statement = connection.prepareStatement("SELECT setval('users_seq', nextval('users_seq') + ?)")) {
+                statement.setLong(1, to - from);
+                try (var rs = statement.executeQuery()) {
+                    rs.next();
+                    lastId = rs.getLong(1);
+                }
+            }
+            final var firstId = lastId - (to - from) + 1;
+            // the triggers, which maintain the emails and the words of the search and check the users of the roles
+            // row by row, cost more than the rest of the load; they are skipped where permitted, and the emails
+            // copied and the words inserted as well
+            final var superuser = isSuperuser(connection);
+            if (superuser) {
+                try (var statement = connection.createStatement()) {
+                    statement.execute("SET LOCAL session_replication_role = replica");
+                }
+                copy(connection, "COPY user_emails (tenant_id, email, user_id) FROM STDIN", writer -> {
+                    for (long n = from; n < to; n++) {
+                        writer.write(tenant(n));
+                        writer.write('\t');
+                        writer.write(email(n));
+                        writer.write('\t');
+                        writer.write(Long.toString(firstId + n - from));
+                        writer.write('\n');
+                    }
+                });
+            }
+            copy(connection, "COPY users (id, tenant_id, email, name) FROM STDIN", writer -> {
+                for (long n = from; n < to; n++) {
+                    writer.write(Long.toString(firstId + n - from));
+                    writer.write('\t');
+                    writer.write(tenant(n));
+                    writer.write('\t');
+                    writer.write(email(n));
+                    writer.write('\t');
+                    writer.write(name(n));
+                    writer.write('\n');
+                }
+            });
+            if (superuser) {
+                try (var statement = connection.prepareStatement(INSERT_SEARCH_WORDS)) {
+                    statement.setLong(1, firstId);
+                    statement.setLong(2, lastId);
+                    statement.execute();
+                }
+            }
+            copy(connection, "COPY user_roles (user_id, roles) FROM STDIN", writer -> {
+                for (long n = from; n < to; n++) {
+                    final var id = Long.toString(firstId + n - from);
+                    for (final var role : roles(n)) {
+                        writer.write(id);
+                        writer.write('\t');
+                        writer.write(role);
+                        writer.write('\n');
+                    }
+                }
+            });
+            connection.commit();
+        } catch (final SQLException | IOException | RuntimeException ex) {
+            connection.rollback();
+            throw ex;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Gets the tenant of the n-th user.
+     *
+     * @param n The number of the user
+     * @return The tenant id
+     */
+    public String tenant(final long n) {
+        return settings.tenants() == 1 ? settings.tenant() : settings.tenant() + "-" + n % settings.tenants();
+    }
+
+    /**
+     * Gets the name of the n-th user.
+     *
+     * @param n The number of the user
+     * @return The name
+     */
+    public String name(final long n) {
+        return nameOf(names.sample(random(n, 1)));
+    }
+
+    /**
+     * Gets the email of the n-th user, which is unique.
+     *
+     * @param n The number of the user
+     * @return The email
+     */
+    public String email(final long n) {
+        return name(n).toLowerCase().replace(' ', '.') + n + "@domain" + domains.sample(random(n, 2)) + ".com";
+    }
+
+    /**
+     * Gets the roles of the n-th user, at least one.
+     *
+     * @param n The number of the user
+     * @return The distinct roles
+     */
+    public List<String> roles(final long n) {
+        final var random = random(n, 3);
+        final var count = 1 + random.nextInt(Math.min(settings.maxRolesPerUser(), settings.roles()));
+        final var result = new ArrayList<String>(count);
+        while (result.size() < count) {
+            final var role = "role" + roles.sample(random);
+            if (!result.contains(role)) {
+                result.add(role);
+            }
+        }
+        return result;
+    }
+
+    // distinct for every index: a first name, and a last name whose syllables are the digits of the rest
+    private static String nameOf(final int index) {
+        final var lastName = new StringBuilder();
+        var rest = index / FIRST_NAMES.size();
+        do {
+            lastName.append(SYLLABLES.get(rest % SYLLABLES.size()));
+            rest /= SYLLABLES.size();
+        } while (rest > 0 || lastName.length() < 6);
+        lastName.setCharAt(0, Character.toUpperCase(lastName.charAt(0)));
+        return FIRST_NAMES.get(index % FIRST_NAMES.size()) + " " + lastName;
+    }
+
+    private static boolean isSuperuser(final Connection connection) throws SQLException {
+        try (var statement = connection.createStatement();
+                var rs = statement.executeQuery("SELECT current_setting('is_superuser')")) {
+            return rs.next() && "on".equals(rs.getString(1));
+        }
+    }
+
+    private SplittableRandom random(final long n, final int attribute) {
+        return new SplittableRandom(settings.seed() ^ (n * 0x9E3779B97F4A7C15L) ^ ((long) attribute << 56));
+    }
+
+    private static void copy(final Connection connection, final String sql, final CopyWriter copyWriter)
+            throws SQLException, IOException {
+        final var copyOut = new PGCopyOutputStream(connection.unwrap(PGConnection.class), sql, 1 << 16);
+        try (var writer = new BufferedWriter(new OutputStreamWriter(copyOut, StandardCharsets.UTF_8), 1 << 16)) {
+            copyWriter.write(writer);
+        }
+    }
+
+    @FunctionalInterface
+    private interface CopyWriter {
+
+        void write(Writer writer) throws IOException;
+    }
+
+    /**
+     * Samples ranks from 0 to n - 1, where the probability of rank k is proportional to 1 / (k + 1)^skew.
+     */
+    private static final class Zipf {
+
+        private final int n;
+        private final double[] cumulative;
+
+        Zipf(final int n, final double skew) {
+            if (n < 1 || skew < 0) {
+                throw new IllegalArgumentException("The number of values must be positive and the skew not negative");
+            }
+            this.n = n;
+            if (skew == 0) {
+                this.cumulative = null;
+            } else {
+                this.cumulative = new double[n];
+                var sum = 0d;
+                for (int k = 0; k < n; k++) {
+                    sum += 1 / Math.pow(k + 1d, skew);
+                    cumulative[k] = sum;
+                }
+            }
+        }
+
+        int sample(final SplittableRandom random) {
+            if (cumulative == null) {
+                return random.nextInt(n);
+            }
+            final var index = Arrays.binarySearch(cumulative, random.nextDouble() * cumulative[n - 1]);
+            return Math.min(n - 1, index >= 0 ? index : -index - 1);
+        }
+    }
+
+    /**
+     * The settings of the generator.
+     *
+     * @param users           The number of users to generate
+     * @param from            The number of the first user to generate, to extend a dataset of that size
+     * @param seed            The seed, from which all attributes of the users are derived
+     * @param tenant          The tenant of the users, or the prefix of the tenants if there are several
+     * @param tenants         The number of tenants, which the users are assigned to in turn
+     * @param names           The number of distinct names
+     * @param nameSkew        The skew of the distribution of the names
+     * @param domains         The number of distinct email domains
+     * @param emailSkew       The skew of the distribution of the email domains
+     * @param roles           The number of distinct roles
+     * @param roleSkew        The skew of the distribution of the roles
+     * @param maxRolesPerUser The maximum number of roles of a user, who has at least one
+     * @param batchSize       The number of users loaded in one transaction
+     */
+    public record Settings(long users, long from, long seed, String tenant, int tenants, int names, double nameSkew,
+            int domains, double emailSkew, int roles, double roleSkew, int maxRolesPerUser, int batchSize) {
+
+        /**
+         * Gets the default settings: a million users of the default tenant with 100,000 names, 1,000 domains and 20
+         * roles, with a Zipf skew of 1 each.
+         *
+         * @return The settings
+         */
+        public static Settings defaults() {
+            return new Settings(1_000_000L, 0L, 42L, "default", 1, 100_000, 1, 1_000, 1, 20, 1, 3, 100_000);
+        }
+
+        static Settings parse(final String[] args) {
+            final var values = new HashMap<String, String>();
+            for (final var arg : args) {
+                final var separator = arg.indexOf('=');
+                if (!arg.startsWith("--") || separator < 0) {
+                    throw new IllegalArgumentException("Expected --name=value, but got " + arg);
+                }
+                values.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+            final var d = defaults();
+            final var settings = new Settings(value(values, "users", d.users(), Long::parseLong),
+                    value(values, "from", d.from(), Long::parseLong),
+                    value(values, "seed", d.seed(), Long::parseLong),
+                    value(values, "tenant", d.tenant(), Function.identity()),
+                    value(values, "tenants", d.tenants(), Integer::parseInt),
+                    value(values, "names", d.names(), Integer::parseInt),
+                    value(values, "nameSkew", d.nameSkew(), Double::parseDouble),
+                    value(values, "domains", d.domains(), Integer::parseInt),
+                    value(values, "emailSkew", d.emailSkew(), Double::parseDouble),
+                    value(values, "roles", d.roles(), Integer::parseInt),
+                    value(values, "roleSkew", d.roleSkew(), Double::parseDouble),
+                    value(values, "maxRolesPerUser", d.maxRolesPerUser(), Integer::parseInt),
+                    value(values, "batchSize", d.batchSize(), Integer::parseInt));
+            if (!values.isEmpty()) {
+                throw new IllegalArgumentException("Unknown settings " + values.keySet());
+            }
+            return settings;
+        }
+
+        private static <T> T value(final Map<String, String> values, final String name, final T defaultValue,
+                final Function<String, T> parser) {
+            final var value = values.remove(name);
+            return value != null ? parser.apply(value) : defaultValue;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.sap.refactoring.cluster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sap.refactoring.service.UserChangedEvent;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for the notification payloads of the {@link UserInvalidationBus}.
+ */
+class UserInvalidationBusTest {
+
+    @Test
+    void payloadTest() {
+        // a change of a single user
+        var payload = UserInvalidationBus.encode("node1", new UserChangedEvent(42L, "bob|smith@mail.com"));
+        assertEquals(new UserChangedEvent(42L, "bob|smith@mail.com", true),
+                UserInvalidationBus.decode("node2", payload));
+
+        // a change without email
+        payload = UserInvalidationBus.encode("node1", new UserChangedEvent(42L, null));
+        assertEquals(new UserChangedEvent(42L, null, true), UserInvalidationBus.decode("node2", payload));
+
+        // a change of all users
+        payload = UserInvalidationBus.encode("node1", UserChangedEvent.all(false));
+        assertTrue(UserInvalidationBus.decode("node2", payload).isAll());
+
+        // the own changes are ignored
+        assertNull(UserInvalidationBus.decode("node1", payload));
+    }
+}
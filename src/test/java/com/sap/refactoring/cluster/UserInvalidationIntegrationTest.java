@@ -0,0 +1,89 @@
+package com.sap.refactoring.cluster;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import com.sap.refactoring.JavaRefactoringTestApplication;
+import com.sap.refactoring.data.UserData;
+import com.sap.refactoring.service.UserService;
+import com.sap.refactoring.tenancy.TenantContext;
+import com.sap.refactoring.users.User;
+import com.sap.refactoring.web.cache.UserResponseCache;
+import jakarta.persistence.EntityManagerFactory;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Integration test for the {@link UserInvalidationBus}, running two application instances against the local database.
+ */
+class UserInvalidationIntegrationTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    @Test
+    void remoteChangesAreEvictedTest() {
+        try (var nodeA = start(); var nodeB = start("--spring.liquibase.enabled=false")) {
+            final var serviceA = nodeA.getBean(UserService.class);
+            final var serviceB = nodeB.getBean(UserService.class);
+            final var entityCacheB = nodeB.getBean(EntityManagerFactory.class).getCache();
+            final var responseCacheB = nodeB.getBean(UserResponseCache.class);
+            final var tenantId = nodeB.getBean(TenantContext.class).getTenantId();
+            await(() -> nodeA.getBean(UserInvalidationBus.class).isListening()
+                    && nodeB.getBean(UserInvalidationBus.class).isListening());
+
+            // node B caches a user created on node A, including a negative lookup by email
+            final var user = serviceA.createUser(createUser("clustered"));
+            assertNull(serviceB.getUserByEmail("updated@integration.com"));
+            assertEquals(user, serviceB.getUser(user.getId()));
+            responseCacheB.put(tenantId, user.getId(), responseCacheB.stamp(), user, false);
+            assertTrue(entityCacheB.contains(User.class, user.getId()));
+
+            // an update on node A is visible on node B shortly after
+            user.setName("updated");
+            user.setEmail("updated@integration.com");
+            serviceA.updateUser(user);
+            // the caches are evicted one after the other by the listeners of the remote event
+            await(() -> !entityCacheB.contains(User.class, user.getId())
+                    && responseCacheB.get(tenantId, user.getId(), false) == null);
+            assertNull(responseCacheB.get(tenantId, user.getId(), false));
+            assertEquals(user, serviceB.getUser(user.getId()));
+            assertEquals(user, serviceB.getUserByEmail("updated@integration.com"));
+
+            // as is a deletion
+            serviceA.deleteUser(user.getId());
+            await(() -> !entityCacheB.contains(User.class, user.getId()));
+            assertNull(serviceB.getUser(user.getId()));
+        }
+    }
+
+    private static ConfigurableApplicationContext start(final String... args) {
+        return new SpringApplicationBuilder(JavaRefactoringTestApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args);
+    }
+
+    private static void await(final BooleanSupplier condition) {
+        final var deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Condition not met within " + TIMEOUT);
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private static UserData createUser(final String name) {
+        final var user = new UserData();
+        user.setName(name);
+        user.setEmail(name + "@integration.com");
+        user.setRoles(List.of("role1"));
+        return user;
+    }
+}
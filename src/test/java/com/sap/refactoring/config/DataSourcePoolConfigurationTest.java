@@ -0,0 +1,45 @@
+package com.sap.refactoring.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for the pool sizing of the {@link DataSourcePoolConfiguration}.
+ */
+class DataSourcePoolConfigurationTest {
+
+    @Test
+    void poolSizeTest() {
+        final var properties = new DataSourcePoolProperties();
+        properties.setRequestConcurrency(200);
+        properties.setConnectionHoldRatio(0.1);
+        assertEquals(20, DataSourcePoolConfiguration.poolSize(properties));
+
+        // the derived size is kept within the configured bounds
+        properties.setRequestConcurrency(10);
+        assertEquals(4, DataSourcePoolConfiguration.poolSize(properties));
+        properties.setRequestConcurrency(10_000);
+        assertEquals(50, DataSourcePoolConfiguration.poolSize(properties));
+    }
+
+    @Test
+    void applyPoolSizeTest() {
+        final var properties = new DataSourcePoolProperties();
+
+        // an unsized pool is sized and kept at a fixed size
+        try (var dataSource = new HikariDataSource()) {
+            DataSourcePoolConfiguration.applyPoolSize(dataSource, properties);
+            assertEquals(20, dataSource.getMaximumPoolSize());
+            assertEquals(20, dataSource.getMinimumIdle());
+        }
+
+        // an explicitly sized pool is left alone
+        try (var dataSource = new HikariDataSource()) {
+            dataSource.setMaximumPoolSize(7);
+            DataSourcePoolConfiguration.applyPoolSize(dataSource, properties);
+            assertEquals(7, dataSource.getMaximumPoolSize());
+        }
+    }
+}
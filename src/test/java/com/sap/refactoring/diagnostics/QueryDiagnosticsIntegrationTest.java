@@ -0,0 +1,192 @@
+package com.sap.refactoring.diagnostics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sap.refactoring.data.UserData;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.hibernate.Cache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Integration test for the {@link QueryInspector} and the {@link QueryDiagnosticsFilter}, with budgets enforced.
+ */
+@SpringBootTest
+class QueryDiagnosticsIntegrationTest {
+
+    @Autowired
+    WebApplicationContext context;
+    @Autowired
+    FilterRegistrationBean<QueryDiagnosticsFilter> filter;
+    @Autowired
+    QueryDiagnosticsProperties properties;
+    @Autowired
+    QueryInspector inspector;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    ObjectMapper mapper;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+    MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        properties.setHeaders(true);
+        properties.setEnforceBudgets(true);
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).addFilters(filter.getFilter()).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        properties.setHeaders(false);
+        properties.setEnforceBudgets(false);
+    }
+
+    @Test
+    void userEndpointsStayWithinBudgetTest() throws Exception {
+        final var user = new UserData();
+        user.setEmail("budget@diagnostics.com");
+        user.setName("budget");
+        user.setRoles(List.of("role1", "role2"));
+        final var response = mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(user)))
+                .andExpect(status().isCreated())
+                .andExpect(header().exists(QueryDiagnosticsFilter.QUERY_TIME_HEADER))
+                .andReturn().getResponse();
+        final var id = mapper.readValue(response.getContentAsString(), UserData.class).getId();
+
+        // the first read loads the user, the second one is answered from the response cache
+        mockMvc.perform(get("/users/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(header().string(QueryDiagnosticsFilter.QUERY_COUNT_HEADER, "1"));
+        mockMvc.perform(get("/users/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(header().string(QueryDiagnosticsFilter.QUERY_COUNT_HEADER, "0"));
+
+        // responses without a body carry the headers as well
+        mockMvc.perform(delete("/users/{id}", id))
+                .andExpect(status().isNoContent())
+                .andExpect(header().exists(QueryDiagnosticsFilter.QUERY_COUNT_HEADER));
+        mockMvc.perform(get("/users/{id}", id))
+                .andExpect(status().isNotFound())
+                .andExpect(header().exists(QueryDiagnosticsFilter.QUERY_COUNT_HEADER));
+
+        final var totals = inspector.report(100).endpoints().stream()
+                .filter(endpoint -> endpoint.name().equals("GET /users/{id}"))
+                .findFirst()
+                .orElse(null);
+        assertNotNull(totals);
+        assertTrue(totals.executions() >= 3);
+        assertEquals(0L, totals.budgetExceeded());
+    }
+
+    @Test
+    void manyRolesStayWithinBudgetTest() throws Exception {
+        // the roles are written in batches, so their number does not count against the budget
+        final var user = new UserData();
+        user.setEmail("roles@diagnostics.com");
+        user.setName("budget roles");
+        user.setRoles(IntStream.range(0, 30).mapToObj(i -> "role" + i).toList());
+        final var response = mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(user)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse();
+        final var created = mapper.readValue(response.getContentAsString(), UserData.class);
+
+        created.setRoles(IntStream.range(20, 60).mapToObj(i -> "role" + i).toList());
+        mockMvc.perform(put("/users/{id}", created.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(created)))
+                .andExpect(status().isAccepted());
+        mockMvc.perform(delete("/users/{id}", created.getId()))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    void listsStayWithinBudgetTest() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            final var user = new UserData();
+            user.setEmail("list" + i + "@diagnostics.com");
+            user.setName("budget list");
+            user.setRoles(List.of("role1", "role2"));
+            mockMvc.perform(post("/users")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(mapper.writeValueAsString(user)))
+                    .andExpect(status().isCreated());
+        }
+
+        // with cold caches, the users are read with their roles in one statement
+        entityManagerFactory.getCache().evictAll();
+        entityManagerFactory.getCache().unwrap(Cache.class).evictQueryRegions();
+        final var response = mockMvc.perform(get("/users").param("name", "budget list"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(QueryDiagnosticsFilter.QUERY_COUNT_HEADER, "1"))
+                .andReturn().getResponse();
+        final var users = mapper.readValue(response.getContentAsString(), UserData[].class);
+        assertEquals(3, users.length);
+        assertEquals(List.of("role1", "role2"), users[0].getRoles().stream().sorted().toList());
+
+        entityManagerFactory.getCache().evictAll();
+        mockMvc.perform(get("/users"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(QueryDiagnosticsFilter.QUERY_COUNT_HEADER, "1"));
+    }
+
+    @Test
+    void exceededBudgetFailsTest() throws Exception {
+        final var request = new MockHttpServletRequest("GET", "/budget");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE,
+                new HandlerMethod(this, getClass().getDeclaredMethod("singleStatement")));
+
+        final var stats = new QueryStats[1];
+        final var exception = assertThrows(QueryBudgetExceededException.class,
+                () -> filter.getFilter().doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+                    stats[0] = inspector.current();
+                    jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+                    jdbcTemplate.queryForObject("SELECT 2", Integer.class);
+                    jdbcTemplate.queryForObject("SELECT 3", Integer.class);
+                }));
+
+        // the statement exceeding the budget fails before it is executed
+        assertTrue(exception.getMessage().contains("SELECT 2"));
+        assertEquals(1, stats[0].getStatements());
+        assertTrue(stats[0].isBudgetExceeded());
+        assertEquals(1L, inspector.report(100).endpoints().stream()
+                .filter(endpoint -> endpoint.name().equals("GET /budget"))
+                .mapToLong(QueryTotals::budgetExceeded)
+                .sum());
+    }
+
+    @QueryBudget(statements = 1)
+    void singleStatement() {
+        // only used for its budget
+    }
+}
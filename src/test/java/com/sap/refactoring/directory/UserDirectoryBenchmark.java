@@ -0,0 +1,92 @@
+package com.sap.refactoring.directory;
+
+import com.sap.refactoring.JavaRefactoringTestApplication;
+import com.sap.refactoring.benchmark.LatencyBenchmark;
+import com.sap.refactoring.data.UserData;
+import com.sap.refactoring.service.UserService;
+import com.sap.refactoring.tenancy.TenantContext;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+
+/**
+ * Compares email lookups through the {@link UserDirectory} against {@link UserService#getUserByEmail(String)}, and
+ * measures a snapshot of a million users. Requires the local database, run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+class UserDirectoryBenchmark {
+
+    private static final int USERS = 2_000;
+    private static final int SNAPSHOT_USERS = 1_000_000;
+    private static final int TENANTS = 100;
+    private static final int THREADS = 4;
+    // directory lookups take well below a microsecond, longer runs exhaust the heap with latency samples
+    private static final Duration WARM_UP = Duration.ofSeconds(2);
+    private static final Duration DURATION = Duration.ofSeconds(3);
+
+    @Test
+    void lookupBenchmark() {
+        try (var context = new SpringApplicationBuilder(JavaRefactoringTestApplication.class)
+                .web(WebApplicationType.NONE)
+                .run()) {
+            final var userService = context.getBean(UserService.class);
+            final var userDirectory = context.getBean(UserDirectory.class);
+            final var tenantId = context.getBean(TenantContext.class).getTenantId();
+            for (int i = 0; i < USERS; i++) {
+                userService.createUser(createUser(i));
+            }
+            userDirectory.rebuild();
+
+            final var results = List.of(
+                    LatencyBenchmark.run("UserService.getUserByEmail", THREADS, WARM_UP, DURATION,
+                            n -> userService.getUserByEmail(email(n % USERS))),
+                    LatencyBenchmark.run("UserDirectory.findByEmail", THREADS, WARM_UP, DURATION,
+                            n -> userDirectory.findByEmail(tenantId, email(n % USERS))));
+            results.forEach(System.out::println);
+        }
+    }
+
+    @Test
+    void snapshotBenchmark() {
+        final var roles = IntStream.range(0, 20).mapToObj(i -> "role" + i).toList();
+        final var heapBefore = usedHeap();
+        final var started = System.nanoTime();
+        final var builder = new UserDirectorySnapshot.Builder(SNAPSHOT_USERS, roles, 0.5);
+        for (int i = 0; i < SNAPSHOT_USERS; i++) {
+            builder.add(tenant(i), i + 1L, email(i), List.of(roles.get(i % 20), roles.get((i + 7) % 20)));
+        }
+        final var snapshot = builder.build();
+        System.out.printf("Built a snapshot of %d users in %d ms: %d bytes off-heap, %d bytes retained on the heap%n",
+                snapshot.size(), (System.nanoTime() - started) / 1_000_000L, snapshot.memoryBytes(),
+                usedHeap() - heapBefore);
+
+        System.out.println(LatencyBenchmark.run("UserDirectorySnapshot.findByEmail", THREADS, WARM_UP, DURATION,
+                n -> snapshot.findByEmail(tenant(n % SNAPSHOT_USERS), email(n % SNAPSHOT_USERS))));
+    }
+
+    private static String tenant(final int n) {
+        return "tenant" + (n % TENANTS);
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        final var runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static UserData createUser(final int n) {
+        final var user = new UserData();
+        user.setEmail(email(n));
+        user.setName("user" + n);
+        user.setRoles(List.of("role1"));
+        return user;
+    }
+
+    private static String email(final int n) {
+        return "user" + n + "@benchmark.com";
+    }
+}
@@ -0,0 +1,104 @@
+package com.sap.refactoring.directory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sap.refactoring.data.UserData;
+import com.sap.refactoring.service.UserService;
+import com.sap.refactoring.tenancy.TenantContext;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Integration test for the {@link UserDirectory}, against the local database.
+ */
+@SpringBootTest
+class UserDirectoryIntegrationTest {
+
+    @Autowired
+    UserService userService;
+
+    @Autowired
+    UserDirectory userDirectory;
+
+    @Autowired
+    TenantContext tenantContext;
+
+    @Test
+    void changesAreVisibleTest() {
+        final var kept = createUser("kept");
+        final var changed = createUser("changed");
+        final var removed = createUser("removed");
+        userDirectory.rebuild();
+        assertTrue(userDirectory.isReady());
+        assertEquals(List.of("role1"), userDirectory.findByEmail(tenant(), "kept@directory.com").roles());
+
+        // changes made after the snapshot has been built are served from the overlay
+        final var created = createUser("created");
+        changed.setEmail("renamed@directory.com");
+        changed.setRoles(List.of("role2"));
+        userService.updateUser(changed);
+        userService.deleteUser(removed.getId());
+        // lookups of a changed user read from the database until its change has been applied
+        assertNull(userDirectory.findById(tenant(), removed.getId()));
+        assertNull(userDirectory.findByEmail(tenant(), "changed@directory.com"));
+        awaitChanges();
+        assertDirectory(kept, created, changed, removed);
+
+        // and survive the next rebuild
+        userDirectory.rebuild();
+        assertDirectory(kept, created, changed, removed);
+    }
+
+    @Test
+    void tenantsAreSeparatedTest() {
+        final var own = createUser("tenant");
+        userDirectory.rebuild();
+        // the same email in another tenant, which is served from the overlay until the next rebuild
+        final var other = TenantContext.callAs("directory-other", () -> createUser("tenant"));
+        awaitChanges();
+        for (int i = 0; i < 2; i++) {
+            assertEquals(own.getId(), userDirectory.findByEmail(tenant(), "tenant@directory.com").id());
+            assertEquals(other.getId(), userDirectory.findByEmail("directory-other", "tenant@directory.com").id());
+            assertNull(userDirectory.findById("directory-other", own.getId()));
+            assertNull(userDirectory.findById(tenant(), other.getId()));
+            userDirectory.rebuild();
+        }
+    }
+
+    private void assertDirectory(final UserData kept, final UserData created, final UserData changed,
+            final UserData removed) {
+        assertEquals(kept.getId(), userDirectory.findByEmail(tenant(), "kept@directory.com").id());
+        assertEquals(created.getId(), userDirectory.findByEmail(tenant(), "created@directory.com").id());
+        assertEquals(new UserDirectoryEntry(changed.getId(), "renamed@directory.com", List.of("role2")),
+                userDirectory.findByEmail(tenant(), "renamed@directory.com"));
+        assertEquals("renamed@directory.com", userDirectory.findById(tenant(), changed.getId()).email());
+        assertNull(userDirectory.findByEmail(tenant(), "changed@directory.com"));
+        assertNull(userDirectory.findByEmail(tenant(), "removed@directory.com"));
+        assertNull(userDirectory.findById(tenant(), removed.getId()));
+    }
+
+    private void awaitChanges() {
+        final var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (userDirectory.hasPendingChanges()) {
+            assertTrue(System.nanoTime() < deadline, "The changes have not been applied");
+            Thread.onSpinWait();
+        }
+    }
+
+    private String tenant() {
+        return tenantContext.getTenantId();
+    }
+
+    private UserData createUser(final String name) {
+        final var user = new UserData();
+        user.setName(name);
+        user.setEmail(name + "@directory.com");
+        user.setRoles(List.of("role1"));
+        return userService.createUser(user);
+    }
+}
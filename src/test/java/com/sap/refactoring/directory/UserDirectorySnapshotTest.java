@@ -0,0 +1,76 @@
+package com.sap.refactoring.directory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for the {@link UserDirectorySnapshot}.
+ */
+class UserDirectorySnapshotTest {
+
+    private static final String TENANT = "tenant1";
+
+    @Test
+    void lookupTest() {
+        // more than one word of role bits, and a load factor forcing long probe sequences
+        final var roles = IntStream.range(0, 100).mapToObj(i -> "role" + i).toList();
+        final var builder = new UserDirectorySnapshot.Builder(1000, roles, 0.9);
+        for (int i = 0; i < 1000; i++) {
+            builder.add(TENANT, i * 50L + 1L, "user" + i + "@directory.com", List.of("role" + (i % 100), "role99"));
+        }
+        final var snapshot = builder.build();
+
+        assertEquals(1000, snapshot.size());
+        for (int i = 0; i < 1000; i++) {
+            final var expected = new UserDirectoryEntry(i * 50L + 1L, "user" + i + "@directory.com",
+                    i % 100 == 99 ? List.of("role99") : List.of("role" + (i % 100), "role99"));
+            assertEquals(expected, snapshot.findByEmail(TENANT, "user" + i + "@directory.com"));
+            assertEquals(expected, snapshot.findById(TENANT, i * 50L + 1L));
+        }
+        assertNull(snapshot.findByEmail(TENANT, "user1000@directory.com"));
+        assertNull(snapshot.findById(TENANT, 2L));
+    }
+
+    @Test
+    void emailsAreComparedAsUtf8Test() {
+        final var builder = new UserDirectorySnapshot.Builder(3, List.of("role1"), 0.5);
+        builder.add(TENANT, 1L, "jürgen@directory.com", List.of("role1"));
+        builder.add(TENANT, 2L, null, List.of());
+        builder.add(TENANT, 3L, "", List.of("role1"));
+        final var snapshot = builder.build();
+
+        assertEquals(1L, snapshot.findByEmail(TENANT, "jürgen@directory.com").id());
+        assertNull(snapshot.findByEmail(TENANT, "jurgen@directory.com"));
+        assertEquals(new UserDirectoryEntry(2L, null, List.of()), snapshot.findById(TENANT, 2L));
+        assertEquals(3L, snapshot.findByEmail(TENANT, "").id());
+    }
+
+    @Test
+    void tenantsAreSeparatedTest() {
+        final var builder = new UserDirectorySnapshot.Builder(2, List.of("role1", "role2"), 0.5);
+        builder.add(TENANT, 1L, "user@directory.com", List.of("role1"));
+        builder.add("tenant2", 2L, "user@directory.com", List.of("role2"));
+        final var snapshot = builder.build();
+
+        assertEquals(1L, snapshot.findByEmail(TENANT, "user@directory.com").id());
+        assertEquals(2L, snapshot.findByEmail("tenant2", "user@directory.com").id());
+        assertNull(snapshot.findByEmail("tenant3", "user@directory.com"));
+        assertNull(snapshot.findById("tenant2", 1L));
+        assertEquals(List.of("role2"), snapshot.findById("tenant2", 2L).roles());
+    }
+
+    @Test
+    void capacityIsEnforcedTest() {
+        final var builder = new UserDirectorySnapshot.Builder(1, List.of("role1"), 0.5);
+        builder.add(TENANT, 1L, "user1@directory.com", List.of("role1"));
+        assertThrows(IllegalStateException.class,
+                () -> builder.add(TENANT, 2L, "user2@directory.com", List.of("role1")));
+        assertThrows(IllegalStateException.class,
+                () -> new UserDirectorySnapshot.Builder(1, List.of(), 0.5).add(TENANT, 1L, "a", List.of("unknown")));
+    }
+}
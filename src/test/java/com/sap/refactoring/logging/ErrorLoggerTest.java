@@ -0,0 +1,83 @@
+package com.sap.refactoring.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+/**
+ * Unit test for the {@link ErrorLogger}.
+ */
+class ErrorLoggerTest {
+
+    private final Logger log = (Logger) LoggerFactory.getLogger(ErrorLoggerTest.class);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private final AtomicLong now = new AtomicLong();
+    private ErrorLogger errorLogger;
+
+    @BeforeEach
+    void setUp() {
+        final var properties = new LoggingProperties();
+        properties.setStackTraceInterval(Duration.ofSeconds(10));
+        properties.setDuplicateSampleRate(3);
+        errorLogger = new ErrorLogger(properties, now::get);
+        appender.start();
+        log.setAdditive(false);
+        log.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        log.detachAppender(appender);
+        log.setAdditive(true);
+    }
+
+    @Test
+    void duplicatesAreSampledTest() {
+        for (int i = 0; i < 7; i++) {
+            errorLogger.error(log, "Failed", outage("connection " + i + " refused"));
+        }
+
+        // the first occurrence with its stack trace, then every third one as a single line
+        assertEquals(3, appender.list.size());
+        assertNotNull(appender.list.get(0).getThrowableProxy());
+        assertNull(appender.list.get(1).getThrowableProxy());
+        assertNull(appender.list.get(2).getThrowableProxy());
+
+        // once the interval has passed, the stack trace is logged again along with the number of suppressed errors
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        errorLogger.error(log, "Failed", outage("connection refused"));
+        assertEquals(4, appender.list.size());
+        assertNotNull(appender.list.get(3).getThrowableProxy());
+        assertEquals("Failed (4 further occurrences without stack trace)", appender.list.get(3).getFormattedMessage());
+    }
+
+    @Test
+    void distinctErrorsAreLoggedTest() {
+        errorLogger.error(log, "Failed", outage("connection refused"));
+        errorLogger.error(log, "Failed", new IllegalStateException("other"));
+        assertEquals(2, appender.list.size());
+        assertNotNull(appender.list.get(1).getThrowableProxy());
+    }
+
+    @Test
+    void signatureIgnoresMessagesTest() {
+        assertEquals(ErrorLogger.signature(outage("a")), ErrorLogger.signature(outage("b")));
+        assertNotEquals(ErrorLogger.signature(outage("a")), ErrorLogger.signature(new IllegalStateException("a")));
+    }
+
+    private static RuntimeException outage(final String message) {
+        return new DataAccessResourceFailureException(message, new IllegalStateException(message));
+    }
+}
@@ -0,0 +1,165 @@
+package com.sap.refactoring.logging;
+
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import ch.qos.logback.core.encoder.Encoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sap.refactoring.benchmark.LatencyBenchmark;
+import com.sap.refactoring.converter.UserDataConverter;
+import com.sap.refactoring.converter.UserReverseConverter;
+import com.sap.refactoring.repository.UserRepository;
+import com.sap.refactoring.service.UserService;
+import com.sap.refactoring.tenancy.TenancyProperties;
+import com.sap.refactoring.tenancy.TenantContext;
+import com.sap.refactoring.users.PersistenceGuard;
+import com.sap.refactoring.users.PersistenceGuardProperties;
+import com.sap.refactoring.users.UserDao;
+import com.sap.refactoring.web.cache.ResponseCacheProperties;
+import com.sap.refactoring.web.cache.UserResponseCache;
+import com.sap.refactoring.web.controller.GlobalExceptionHandler;
+import com.sap.refactoring.web.controller.UserController;
+import jakarta.persistence.EntityManagerFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import net.logstash.logback.appender.LoggingEventAsyncDisruptorAppender;
+import net.logstash.logback.encoder.LogstashEncoder;
+import net.logstash.logback.stacktrace.ShortenedThrowableConverter;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+/**
+ * Compares the latency of the /users API during a simulated database outage, in which every repository call fails
+ * right away, between the current logging (every stack trace written synchronously) and the structured asynchronous
+ * logging with sampled duplicate stack traces and access logging. The logs are written to {@code build/benchmark-logs}.
+ * Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+class RequestLoggingBenchmark {
+
+    private static final int THREADS = 8;
+    private static final Duration WARM_UP = Duration.ofSeconds(3);
+    private static final Duration DURATION = Duration.ofSeconds(10);
+
+    @Test
+    void outageLoggingBenchmark() throws Exception {
+        final var directory = Files.createDirectories(Path.of("build", "benchmark-logs"));
+        final var current = new LoggingProperties();
+        current.setStackTraceInterval(Duration.ZERO);
+        current.setAccessLog(false);
+
+        final var results = new ArrayList<LatencyBenchmark.Result>();
+        results.addAll(measure("current logging", current, false,
+                synchronousAppender(directory.resolve("current.log"))));
+        results.addAll(measure("structured async logging", new LoggingProperties(), true,
+                asynchronousAppender(directory.resolve("structured.log"))));
+        results.forEach(System.out::println);
+    }
+
+    private List<LatencyBenchmark.Result> measure(final String name, final LoggingProperties properties,
+            final boolean requestLogging, final Appender<ILoggingEvent> appender) {
+        final var root = (Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        final var previous = new ArrayList<Appender<ILoggingEvent>>();
+        root.iteratorForAppenders().forEachRemaining(previous::add);
+        previous.forEach(root::detachAppender);
+        root.addAppender(appender);
+        try {
+            final var mockMvc = createMockMvc(properties, requestLogging);
+            return List.of(
+                    LatencyBenchmark.run(name + ": getUsers(name)", THREADS, WARM_UP, DURATION,
+                            n -> perform(mockMvc, "/users?name=user" + n)),
+                    LatencyBenchmark.run(name + ": getUser(id)", THREADS, WARM_UP, DURATION,
+                            n -> perform(mockMvc, "/users/" + n)));
+        } finally {
+            root.detachAppender(appender);
+            appender.stop();
+            previous.forEach(root::addAppender);
+        }
+    }
+
+    private static MockMvc createMockMvc(final LoggingProperties properties, final boolean requestLogging) {
+        // every repository call fails like it would while the database cannot be reached
+        final var userRepository = mock(UserRepository.class, invocation -> {
+            throw new CannotGetJdbcConnectionException("Failed to obtain JDBC Connection",
+                    new SQLTransientConnectionException("users-pool - Connection is not available"));
+        });
+        // the circuit breaker would stop the errors, which are the point of this benchmark
+        final var guardProperties = new PersistenceGuardProperties();
+        guardProperties.setEnabled(false);
+        final var tenantContext = new TenantContext(new TenancyProperties());
+        final var userDao = new UserDao(userRepository, new PersistenceGuard(guardProperties, tenantContext),
+                mock(EntityManagerFactory.class), tenantContext);
+        final var errorLogger = new ErrorLogger(properties);
+        final var userService = new UserService(userDao, new UserDataConverter(), new UserReverseConverter(),
+                event -> {
+                });
+        final var controller = new UserController(userService,
+                new UserResponseCache(new ResponseCacheProperties(), new ObjectMapper()), tenantContext);
+        final var builder = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new GlobalExceptionHandler(errorLogger));
+        if (requestLogging) {
+            builder.addFilters(new RequestLoggingFilter(properties));
+        }
+        return builder.build();
+    }
+
+    private static void perform(final MockMvc mockMvc, final String uri) {
+        try {
+            mockMvc.perform(get(uri));
+        } catch (final Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static Appender<ILoggingEvent> synchronousAppender(final Path file) {
+        final var context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        final var encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p --- [%t] %-40.40logger{39} : %m%n%ex");
+        encoder.start();
+        return fileAppender(context, file, encoder);
+    }
+
+    private static Appender<ILoggingEvent> asynchronousAppender(final Path file) {
+        final var context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        final var throwableConverter = new ShortenedThrowableConverter();
+        throwableConverter.setMaxDepthPerThrowable(40);
+        throwableConverter.setRootCauseFirst(true);
+        final var encoder = new LogstashEncoder();
+        encoder.setContext(context);
+        encoder.setThrowableConverter(throwableConverter);
+        encoder.start();
+
+        final var appender = new LoggingEventAsyncDisruptorAppender();
+        appender.setContext(context);
+        appender.setRingBufferSize(8192);
+        appender.addAppender(fileAppender(context, file, encoder));
+        appender.start();
+        return appender;
+    }
+
+    private static FileAppender<ILoggingEvent> fileAppender(final LoggerContext context, final Path file,
+            final Encoder<ILoggingEvent> encoder) {
+        final var appender = new FileAppender<ILoggingEvent>();
+        appender.setContext(context);
+        appender.setFile(file.toString());
+        appender.setAppend(false);
+        appender.setEncoder(encoder);
+        appender.start();
+        return appender;
+    }
+}
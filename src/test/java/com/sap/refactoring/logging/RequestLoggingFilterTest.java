@@ -0,0 +1,47 @@
+package com.sap.refactoring.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Unit test for the {@link RequestLoggingFilter}.
+ */
+class RequestLoggingFilterTest {
+
+    private final RequestLoggingFilter filter = new RequestLoggingFilter(new LoggingProperties());
+
+    @Test
+    void correlationIdIsPropagatedTest() throws Exception {
+        final var request = new MockHttpServletRequest("GET", "/users/1");
+        request.addHeader(RequestLoggingFilter.CORRELATION_ID_HEADER, "client-id.42");
+        final var response = new MockHttpServletResponse();
+        final var seen = new AtomicReference<String>();
+
+        filter.doFilter(request, response, (req, res) -> seen.set(RequestLoggingFilter.getCorrelationId()));
+
+        assertEquals("client-id.42", seen.get());
+        assertEquals("client-id.42", response.getHeader(RequestLoggingFilter.CORRELATION_ID_HEADER));
+        assertNull(RequestLoggingFilter.getCorrelationId());
+    }
+
+    @Test
+    void malformedCorrelationIdIsReplacedTest() throws Exception {
+        final var request = new MockHttpServletRequest("GET", "/users/1");
+        request.addHeader(RequestLoggingFilter.CORRELATION_ID_HEADER, "{\"injected\": true}");
+        final var response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> {
+        });
+
+        final var correlationId = response.getHeader(RequestLoggingFilter.CORRELATION_ID_HEADER);
+        assertNotNull(correlationId);
+        assertNotEquals("{\"injected\": true}", correlationId);
+    }
+}
@@ -0,0 +1,48 @@
+package com.sap.refactoring.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sap.refactoring.users.User;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+
+/**
+ * Integration test for the {@link UserRepository} on the partitioned {@code users} table, against the local database.
+ */
+@SpringBootTest
+class UserRepositoryIntegrationTest {
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Test
+    void emailIsUniqueAcrossPartitionsTest() {
+        // consecutive ids end up in different partitions, yet the email must be unique
+        final var user = userRepository.save(createUser("unique"));
+        assertThrows(DataIntegrityViolationException.class, () -> userRepository.save(createUser("unique")));
+
+        // the lookup follows email changes, and frees the previous email
+        user.setEmail("changed@integration.com");
+        userRepository.save(user);
+        assertEquals(user.getId(), userRepository.findByEmail("changed@integration.com").map(User::getId).orElse(null));
+        assertTrue(userRepository.findByEmail("unique@integration.com").isEmpty());
+        userRepository.save(createUser("unique"));
+
+        // and deletions
+        userRepository.deleteById(user.getId());
+        assertTrue(userRepository.findByEmail("changed@integration.com").isEmpty());
+    }
+
+    private User createUser(final String name) {
+        final var user = new User();
+        user.setName(name);
+        user.setEmail(name + "@integration.com");
+        user.setRoles(List.of("role1"));
+        return user;
+    }
+}
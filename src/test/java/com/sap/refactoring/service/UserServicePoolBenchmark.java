@@ -0,0 +1,67 @@
+package com.sap.refactoring.service;
+
+import com.sap.refactoring.JavaRefactoringTestApplication;
+import com.sap.refactoring.benchmark.LatencyBenchmark;
+import com.sap.refactoring.data.UserData;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+
+/**
+ * Compares the {@link UserService} latency with Hikari's default pool configuration against the tuned configuration
+ * from the application properties. Requires the local database, run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+class UserServicePoolBenchmark {
+
+    private static final int USERS = 2_000;
+    private static final int THREADS = 200;
+    private static final Duration WARM_UP = Duration.ofSeconds(5);
+    private static final Duration DURATION = Duration.ofSeconds(20);
+
+    @Test
+    void poolConfigurationBenchmark() {
+        final var results = new ArrayList<LatencyBenchmark.Result>();
+        results.addAll(measure("default pool",
+                "--spring.datasource.hikari.maximum-pool-size=10",
+                "--spring.datasource.hikari.data-source-properties.prepareThreshold=5"));
+        results.addAll(measure("tuned pool"));
+        results.forEach(System.out::println);
+    }
+
+    private List<LatencyBenchmark.Result> measure(final String name, final String... args) {
+        try (var context = new SpringApplicationBuilder(JavaRefactoringTestApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args)) {
+            final var userService = context.getBean(UserService.class);
+            final var ids = new long[USERS];
+            for (int i = 0; i < USERS; i++) {
+                ids[i] = userService.createUser(createUser(i)).getId();
+            }
+
+            return List.of(
+                    LatencyBenchmark.run(name + ": getUserByEmail", THREADS, WARM_UP, DURATION,
+                            n -> userService.getUserByEmail(email(n % USERS))),
+                    LatencyBenchmark.run(name + ": getUsers(name)", THREADS, WARM_UP, DURATION,
+                            n -> userService.getUsers("user" + n % USERS)),
+                    LatencyBenchmark.run(name + ": getUser(id)", THREADS, WARM_UP, DURATION,
+                            n -> userService.getUser(ids[n % USERS])));
+        }
+    }
+
+    private static UserData createUser(final int n) {
+        final var user = new UserData();
+        user.setEmail(email(n));
+        user.setName("user" + n);
+        user.setRoles(List.of("role1"));
+        return user;
+    }
+
+    private static String email(final int n) {
+        return "user" + n + "@benchmark.com";
+    }
+}
@@ -0,0 +1,123 @@
+package com.sap.refactoring.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.sap.refactoring.JavaRefactoringTestApplication;
+import com.sap.refactoring.benchmark.LatencyBenchmark;
+import com.sap.refactoring.benchmark.UserDataGenerator;
+import com.sap.refactoring.data.UserData;
+import com.sap.refactoring.users.UserBulkDao;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Measures how the latency of the main {@link UserService} operations and the memory use scale with the number of
+ * users. The users are generated with the {@link UserDataGenerator} and extended from one size to the next, the sizes
+ * are given as {@code ./gradlew scaleTest -PscaleSizes=1000,10000,100000,1000000}. Requires the local database.
+ * <p>
+ * Every operation is measured in a single thread, as the latency is of interest. Listing all users is only measured
+ * up to {@value #MAX_USERS_LISTED} users, as its response grows with them.
+ */
+@Tag("scale")
+class UserServiceScaleTest {
+
+    private static final String DEFAULT_SIZES = "1000,10000,100000,1000000";
+    private static final long MAX_USERS_LISTED = 100_000L;
+    private static final int THREADS = 1;
+    private static final Duration WARM_UP = Duration.ofSeconds(2);
+    private static final Duration DURATION = Duration.ofSeconds(5);
+
+    @Test
+    void scaleTest() throws Exception {
+        final var sizes = Arrays.stream(System.getProperty("scale.sizes", DEFAULT_SIZES).split(","))
+                .mapToLong(size -> Long.parseLong(size.trim()))
+                .sorted()
+                .toArray();
+        final var generator = new UserDataGenerator(UserDataGenerator.Settings.defaults());
+        final var batchSize = UserDataGenerator.Settings.defaults().batchSize();
+        try (var context = new SpringApplicationBuilder(JavaRefactoringTestApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--users.directory.enabled=false")) {
+            final var userService = context.getBean(UserService.class);
+            final var userBulkDao = context.getBean(UserBulkDao.class);
+            final var jdbcTemplate = context.getBean(JdbcTemplate.class);
+            final var dataSource = context.getBean(DataSource.class);
+            final var created = new AtomicLong();
+
+            final var report = new ArrayList<String>();
+            var loaded = 0L;
+            for (final var size : sizes) {
+                final var started = System.nanoTime();
+                try (var connection = dataSource.getConnection()) {
+                    for (var from = loaded; from < size; from += batchSize) {
+                        generator.load(connection, from, Math.min(size, from + batchSize));
+                    }
+                }
+                jdbcTemplate.execute("ANALYZE users, user_roles, user_emails");
+                final var loadSeconds = (System.nanoTime() - started) / 1e9;
+                // the users have been loaded around Hibernate, whose caches must not keep stale results
+                context.publishEvent(UserChangedEvent.all(false));
+                loaded = size;
+
+                // the loaded users must be found like any other
+                final var last = userService.getUserByEmail(generator.email(size - 1));
+                assertEquals(generator.name(size - 1), last.getName());
+                assertEquals(last, userService.getUser(last.getId()));
+
+                final var ids = userBulkDao.getIdRange(generator.tenant(0)).orElseThrow();
+                final var span = ids.to() - ids.from() + 1;
+                final var count = size;
+                final var results = new ArrayList<>(List.of(
+                        LatencyBenchmark.run(size + " users: getUser(id)", THREADS, WARM_UP, DURATION,
+                                n -> userService.getUser(ids.from() + Math.floorMod(n * 7919L, span))),
+                        LatencyBenchmark.run(size + " users: getUserByEmail", THREADS, WARM_UP, DURATION,
+                                n -> userService.getUserByEmail(generator.email(Math.floorMod(n * 7919L, count)))),
+                        LatencyBenchmark.run(size + " users: getUsers(name)", THREADS, WARM_UP, DURATION,
+                                n -> userService.getUsers(generator.name(Math.floorMod(n * 7919L, count)))),
+                        LatencyBenchmark.run(size + " users: createUser + deleteUser", THREADS, WARM_UP, DURATION,
+                                n -> userService.deleteUser(userService.createUser(
+                                        createUser(created.incrementAndGet())).getId()))));
+                if (size <= MAX_USERS_LISTED) {
+                    results.add(LatencyBenchmark.run(size + " users: getUsers()", THREADS, WARM_UP, DURATION,
+                            n -> userService.getUsers(null)));
+                }
+                results.forEach(System.out::println);
+
+                System.gc();
+                final var heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+                final var database = databaseSize(jdbcTemplate);
+                report.add(String.format("%,12d users: loaded in %6.1f s, %s, heap %,6d MB, database %,7d MB", size,
+                        loadSeconds, results.stream()
+                                .map(result -> result.name().substring(result.name().indexOf(": ") + 2) + " p50 "
+                                        + result.p50() + " p99 " + result.p99())
+                                .toList(), heap >> 20, database >> 20));
+            }
+            System.out.println("Latencies in microseconds:");
+            report.forEach(System.out::println);
+        }
+    }
+
+    // the partitions and indexes of the users, their roles and emails
+    private static long databaseSize(final JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject("SELECT sum(pg_total_relation_size(t.relid)) FROM unnest(ARRAY["
+                + "'users', 'user_roles', 'user_emails']::regclass[]) r, pg_partition_tree(r) t", Long.class);
+    }
+
+    private static UserData createUser(final long n) {
+        final var user = new UserData();
+        user.setEmail("scale" + n + "@scale-test.com");
+        user.setName("Scale Test " + n);
+        user.setRoles(List.of("role1"));
+        return user;
+    }
+}
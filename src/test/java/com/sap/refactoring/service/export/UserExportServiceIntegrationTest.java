@@ -0,0 +1,186 @@
+package com.sap.refactoring.service.export;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sap.refactoring.data.UserData;
+import com.sap.refactoring.service.UserService;
+import com.sap.refactoring.tenancy.TenantContext;
+import com.sap.refactoring.users.UserBulkDao.IdRange;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Integration test for the {@link UserExportService}, against the local database.
+ */
+@SpringBootTest
+class UserExportServiceIntegrationTest {
+
+    @TempDir
+    static Path directory;
+
+    @Autowired
+    UserService userService;
+
+    @Autowired
+    UserExportService userExportService;
+
+    @Autowired
+    ExportProperties properties;
+
+    @Autowired
+    TenantContext tenantContext;
+
+    private final ExportProperties defaults = new ExportProperties();
+
+    @BeforeEach
+    void setUp() {
+        // shares the application context (and database) of the other tests, instead of starting another one
+        properties.setDirectory(directory);
+        properties.setChunkSize(2L);
+        properties.setFetchSize(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        properties.setDirectory(defaults.getDirectory());
+        properties.setChunkSize(defaults.getChunkSize());
+        properties.setFetchSize(defaults.getFetchSize());
+        properties.setMaxRunningExports(defaults.getMaxRunningExports());
+    }
+
+    @Test
+    void exportToFileTest() throws Exception {
+        final var users = List.of(createUser("export1"), createUser("export2"), createUser("export,3"));
+
+        final var job = awaitCompletion(userExportService.startExport(tenant(), "export-test", ExportFormat.CSV, true));
+        assertEquals(ExportJob.State.COMPLETED, job.getState());
+        assertEquals(job.getTotalChunks(), job.getCompletedChunks().get());
+        assertFalse(Files.exists(userExportService.getDirectory(tenant()).resolve("export-test.parts")));
+
+        // the gzip members of all parts decompress into a single file, in id order
+        final var lines = gunzip(job.getFile()).lines().toList();
+        assertEquals("id,email,name,roles", lines.get(0));
+        assertEquals(job.getExportedUsers().get(), lines.size() - 1);
+        final var ids = lines.stream().skip(1).map(line -> Long.parseLong(line.substring(0, line.indexOf(','))))
+                .toList();
+        assertEquals(ids.stream().sorted().toList(), ids);
+        assertTrue(lines.stream().anyMatch(
+                line -> line.startsWith(users.get(2).getId() + ",\"export,3@integration.com\",\"export,3\",role")));
+    }
+
+    @Test
+    void resumeExportTest() throws Exception {
+        final var first = createUser("resume1");
+        createUser("resume2");
+
+        // an interrupted export, whose first chunk has been completed already
+        final var parts = Files.createDirectories(
+                userExportService.getDirectory(tenant()).resolve("resume-test.parts"));
+        Files.writeString(parts.resolve("export.properties"), "format=NDJSON\ngzip=false\nchunkSize=2\nfrom="
+                + first.getId() + "\nto=" + (first.getId() + 1) + "\n");
+        Files.writeString(parts.resolve("chunk-00000000-1.part"), "{\"resumed\":true}\n");
+
+        final var job = awaitCompletion(
+                userExportService.startExport(tenant(), "resume-test", ExportFormat.NDJSON, false));
+        assertEquals(ExportJob.State.COMPLETED, job.getState());
+        assertEquals(List.of("{\"resumed\":true}"), Files.readAllLines(job.getFile()));
+    }
+
+    @Test
+    void streamExportTest() throws Exception {
+        final var user = createUser("stream1");
+
+        final var out = new ByteArrayOutputStream();
+        final var count = userExportService.export(tenant(), out, ExportFormat.NDJSON, false);
+
+        final var lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(count, lines.size());
+        assertTrue(lines.stream().anyMatch(line -> line.contains("\"email\":\"" + user.getEmail() + "\"")));
+    }
+
+    @Test
+    void exportOfTenantTest() throws Exception {
+        final var user = TenantContext.callAs("export-other", () -> createUser("tenant1"));
+
+        final var out = new ByteArrayOutputStream();
+        assertEquals(1L, userExportService.export("export-other", out, ExportFormat.NDJSON, false));
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains("\"id\":" + user.getId() + ","));
+
+        // the exports of each tenant are kept apart, even under the same name
+        final var job = awaitCompletion(userExportService.startExport("export-other", "tenant-test", ExportFormat.CSV,
+                false));
+        assertEquals(1L, job.getExportedUsers().get());
+        assertTrue(userExportService.getExport(tenant(), "tenant-test").isEmpty());
+        assertEquals(userExportService.getDirectory("export-other"), job.getFile().getParent());
+    }
+
+    @Test
+    void tooManyExportsTest() throws Exception {
+        createUser("limit1");
+        properties.setMaxRunningExports(0);
+        assertThrows(TooManyExportsException.class,
+                () -> userExportService.startExport(tenant(), "limit-test", ExportFormat.CSV, false));
+        assertTrue(userExportService.getExport(tenant(), "limit-test").isEmpty());
+
+        // a completed export no longer counts against the limit
+        properties.setMaxRunningExports(1);
+        assertEquals(ExportJob.State.COMPLETED, awaitCompletion(
+                userExportService.startExport(tenant(), "limit-test", ExportFormat.CSV, false)).getState());
+        assertEquals(ExportJob.State.COMPLETED, awaitCompletion(
+                userExportService.startExport(tenant(), "limit-test2", ExportFormat.CSV, false)).getState());
+    }
+
+    @Test
+    void invalidNameTest() {
+        assertThrows(IllegalArgumentException.class,
+                () -> userExportService.startExport(tenant(), "../escape", ExportFormat.CSV, false));
+        assertThrows(IllegalArgumentException.class,
+                () -> userExportService.startExport("../escape", "name", ExportFormat.CSV, false));
+    }
+
+    @Test
+    void chunksTest() {
+        assertEquals(List.of(new IdRange(1, 3), new IdRange(4, 6), new IdRange(7, 7)),
+                UserExportService.chunks(new IdRange(1, 7), 3));
+        assertEquals(List.of(), UserExportService.chunks(new IdRange(1, 0), 3));
+    }
+
+    private String tenant() {
+        return tenantContext.getTenantId();
+    }
+
+    private UserData createUser(final String name) {
+        final var user = new UserData();
+        user.setName(name);
+        user.setEmail(name + "@integration.com");
+        user.setRoles(List.of("role1", "role2"));
+        return userService.createUser(user);
+    }
+
+    private static ExportJob awaitCompletion(final ExportJob job) throws InterruptedException {
+        for (int i = 0; i < 500 && job.getState() == ExportJob.State.RUNNING; i++) {
+            Thread.sleep(20L);
+        }
+        return job;
+    }
+
+    private static String gunzip(final Path file) throws IOException {
+        try (var in = new GZIPInputStream(Files.newInputStream(file))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
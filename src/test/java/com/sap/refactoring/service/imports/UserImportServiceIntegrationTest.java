@@ -0,0 +1,186 @@
+package com.sap.refactoring.service.imports;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sap.refactoring.data.ImportRejectionData;
+import com.sap.refactoring.data.UserData;
+import com.sap.refactoring.service.UserService;
+import com.sap.refactoring.service.export.ExportFormat;
+import com.sap.refactoring.tenancy.TenantContext;
+import com.sap.refactoring.users.UserBulkDao.Rejection;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Integration test for the {@link UserImportService}, against the local database.
+ */
+@SpringBootTest
+class UserImportServiceIntegrationTest {
+
+    @Autowired
+    UserService userService;
+
+    @Autowired
+    UserImportService userImportService;
+
+    @Autowired
+    TenantContext tenantContext;
+
+    @Test
+    void importCsvTest() {
+        // cached before the import, which must not hide the imported user
+        assertEquals(null, userService.getUserByEmail("csv1@import.com"));
+        final var existing = createUser("csv-existing@import.com");
+
+        final var result = userImportService.importUsers(tenantContext.getTenantId(), stream("""
+                id,email,name,roles
+                1,csv1@import.com,"Doe, John",role1|role2
+                2,csv2@import.com,,role1
+                3,csv1@import.com,duplicate,role1
+                4,,no email,role1
+                5,csv3@import.com,no roles,
+                6,csv-existing@import.com,existing,role1
+                """), ExportFormat.CSV);
+
+        assertEquals(6, result.getRecords());
+        assertEquals(2, result.getImported());
+        assertEquals(4, result.getRejected());
+        assertEquals(Map.of(3L, Rejection.DUPLICATE_EMAIL, 4L, Rejection.MISSING_EMAIL, 5L, Rejection.MISSING_ROLES,
+                6L, Rejection.EMAIL_IN_USE), reasons(result.getRejections()));
+
+        final var imported = userService.getUserByEmail("csv1@import.com");
+        assertNotNull(imported);
+        assertEquals("Doe, John", imported.getName());
+        assertEquals(List.of("role1", "role2"), imported.getRoles().stream().sorted().toList());
+        assertEquals(null, userService.getUserByEmail("csv2@import.com").getName());
+        assertEquals(existing.getName(), userService.getUserByEmail("csv-existing@import.com").getName());
+
+        // the imported users behave like any other
+        imported.setName("changed");
+        assertEquals("changed", userService.updateUser(imported).getName());
+        assertTrue(createUser("csv4@import.com").getId() > 0L);
+    }
+
+    @Test
+    void importMalformedCsvTest() {
+        final var out = new ByteArrayOutputStream();
+        out.writeBytes("""
+                id,email,name,roles
+                1,malformed1@import.com,"unbalanced,role1
+                2,malformed2@import.com,ok,role1
+                3,malformed3@import.com,extra,role1,extra
+                4,malformed4@import.com,missing
+                5,malformed5@import.com,"quoted ""name\"\"",role1
+                6,""".getBytes(StandardCharsets.UTF_8));
+        // not valid UTF-8
+        out.writeBytes(new byte[] {(byte) 0xC3, (byte) 0x28});
+        out.writeBytes("""
+                @import.com,invalid,role1
+                7,malformed7@import.com,"two
+                lines",role1
+                """.getBytes(StandardCharsets.UTF_8));
+
+        final var result = userImportService.importUsers(tenantContext.getTenantId(),
+                new ByteArrayInputStream(out.toByteArray()), ExportFormat.CSV);
+
+        // a broken row is rejected on its own, the import goes on
+        assertEquals(7, result.getRecords());
+        assertEquals(3, result.getImported());
+        assertEquals(Map.of(1L, Rejection.MALFORMED, 3L, Rejection.MALFORMED, 4L, Rejection.MALFORMED,
+                6L, Rejection.MALFORMED), reasons(result.getRejections()));
+        assertEquals("ok", userService.getUserByEmail("malformed2@import.com").getName());
+        assertEquals("quoted \"name\"", userService.getUserByEmail("malformed5@import.com").getName());
+        assertEquals("two\nlines", userService.getUserByEmail("malformed7@import.com").getName());
+    }
+
+    @Test
+    void importCsvWithoutHeaderTest() {
+        // the first user is not mistaken for the header
+        assertThrows(IllegalArgumentException.class, () -> userImportService.importUsers(
+                tenantContext.getTenantId(), stream("""
+                        1,headless1@import.com,first,role1
+                        2,headless2@import.com,second,role1
+                        """), ExportFormat.CSV));
+        assertNull(userService.getUserByEmail("headless2@import.com"));
+    }
+
+    @Test
+    void importNdjsonTest() {
+        final var result = userImportService.importUsers(tenantContext.getTenantId(), stream("""
+                {"email":"ndjson1@import.com","name":"one","roles":["role1"]}
+
+                {"email":"ndjson2@import.com","roles":"role1"}
+                not json
+                {"email":"ndjson3@import.com","name":"three","roles":[]}
+                """), ExportFormat.NDJSON);
+
+        assertEquals(4, result.getRecords());
+        assertEquals(1, result.getImported());
+        assertEquals(Map.of(2L, Rejection.MALFORMED, 3L, Rejection.MALFORMED, 4L, Rejection.MISSING_ROLES),
+                reasons(result.getRejections()));
+        assertEquals("one", userService.getUserByEmail("ndjson1@import.com").getName());
+    }
+
+    @Test
+    void importIdsTest() {
+        final var users = 120;
+        final var content = new StringBuilder();
+        for (int i = 0; i < users; i++) {
+            content.append("{\"email\":\"ids").append(i).append("@import.com\",\"roles\":[\"role1\"]}\n");
+        }
+
+        assertEquals(users, userImportService.importUsers(tenantContext.getTenantId(), stream(content.toString()),
+                ExportFormat.NDJSON).getImported());
+
+        // the ids are reserved in blocks of the sequence, and follow the order of the import
+        final var first = userService.getUserByEmail("ids0@import.com").getId();
+        for (int i = 1; i < users; i++) {
+            assertEquals(first + i, userService.getUserByEmail("ids" + i + "@import.com").getId());
+        }
+        final var created = createUser("ids-created@import.com").getId();
+        assertTrue(created < first || created >= first + users);
+    }
+
+    @Test
+    void importIntoTenantTest() {
+        final var existing = createUser("tenant-existing@import.com");
+
+        // the email is only in use in the other tenant
+        final var result = userImportService.importUsers("import-other", stream("""
+                {"email":"tenant-existing@import.com","name":"other","roles":["role1"]}
+                """), ExportFormat.NDJSON);
+
+        assertEquals(1, result.getImported());
+        assertEquals(existing.getName(), userService.getUserByEmail("tenant-existing@import.com").getName());
+        assertEquals("other", TenantContext.callAs("import-other",
+                () -> userService.getUserByEmail("tenant-existing@import.com")).getName());
+    }
+
+    private UserData createUser(final String email) {
+        final var user = new UserData();
+        user.setName("existing");
+        user.setEmail(email);
+        user.setRoles(List.of("role1"));
+        return userService.createUser(user);
+    }
+
+    private static Map<Long, String> reasons(final List<ImportRejectionData> rejections) {
+        return rejections.stream()
+                .collect(Collectors.toMap(ImportRejectionData::getLine, ImportRejectionData::getReason));
+    }
+
+    private static ByteArrayInputStream stream(final String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
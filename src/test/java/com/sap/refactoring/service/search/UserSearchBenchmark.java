@@ -0,0 +1,88 @@
+package com.sap.refactoring.service.search;
+
+import com.sap.refactoring.JavaRefactoringTestApplication;
+import com.sap.refactoring.benchmark.LatencyBenchmark;
+import com.sap.refactoring.benchmark.UserDataGenerator;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.LongFunction;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Measures the latency of {@link UserSearchService#search} over a generated dataset of users in a single tenant, a
+ * million by default, for exact, misspelled and partial terms, and for later pages. Requires the local database, run
+ * with {@code ./gradlew benchmark -PsearchUsers=10000000}.
+ * <p>
+ * The users are generated with the {@link UserDataGenerator}, so that the terms can be derived from the number of a
+ * random user. There are as many distinct names as users, uniformly distributed, so that a full name matches a few
+ * users and a last name a few dozen.
+ */
+@Tag("benchmark")
+class UserSearchBenchmark {
+
+    private static final String DEFAULT_USERS = "1000000";
+    private static final String TENANT = "search-benchmark";
+    // the latency of a single search is of interest, not the throughput
+    private static final int THREADS = 1;
+    private static final Duration WARM_UP = Duration.ofSeconds(5);
+    private static final Duration DURATION = Duration.ofSeconds(10);
+
+    @Test
+    void searchBenchmark() throws Exception {
+        final var users = Long.parseLong(System.getProperty("search.users", DEFAULT_USERS));
+        final var defaults = UserDataGenerator.Settings.defaults();
+        final var generator = new UserDataGenerator(new UserDataGenerator.Settings(users, 0L, defaults.seed(), TENANT,
+                1, (int) Math.min(users, Integer.MAX_VALUE), 0, defaults.domains(), defaults.emailSkew(),
+                defaults.roles(), defaults.roleSkew(), defaults.maxRolesPerUser(), defaults.batchSize()));
+        try (var context = new SpringApplicationBuilder(JavaRefactoringTestApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--users.directory.enabled=false", "--users.persistence-guard.enabled=false")) {
+            final var userSearchService = context.getBean(UserSearchService.class);
+
+            final var started = System.nanoTime();
+            try (var connection = context.getBean(DataSource.class).getConnection()) {
+                for (var from = 0L; from < users; from += defaults.batchSize()) {
+                    generator.load(connection, from, Math.min(users, from + defaults.batchSize()));
+                }
+            }
+            // merges the pending entries of the trigram index, which autovacuum would otherwise do while measuring
+            context.getBean(JdbcTemplate.class).execute("VACUUM ANALYZE users, search_words, user_search_words");
+            System.out.printf("Generated %d users in %d s%n", users, (System.nanoTime() - started) / 1_000_000_000L);
+
+            final var results = List.of(
+                    measure(userSearchService, users, "exact last name", n -> lastName(generator.name(n))),
+                    measure(userSearchService, users, "misspelled full name", n -> misspell(generator.name(n))),
+                    measure(userSearchService, users, "partial email", n -> generator.email(n).substring(0, 8)),
+                    LatencyBenchmark.run("third page, partial email", THREADS, WARM_UP, DURATION, n -> {
+                        final var term = generator.email(n % users).substring(0, 8);
+                        var page = userSearchService.search(TENANT, term, 20, null);
+                        for (int i = 0; i < 2 && page.getNext() != null; i++) {
+                            page = userSearchService.search(TENANT, term, 20, page.getNext());
+                        }
+                    }));
+            results.forEach(System.out::println);
+        }
+    }
+
+    private static LatencyBenchmark.Result measure(final UserSearchService userSearchService, final long users,
+            final String name, final LongFunction<String> term) {
+        return LatencyBenchmark.run(users + " users: " + name, THREADS, WARM_UP, DURATION,
+                n -> userSearchService.search(TENANT, term.apply(n % users), 20, null));
+    }
+
+    private static String lastName(final String name) {
+        return name.substring(name.indexOf(' ') + 1);
+    }
+
+    // swaps two adjacent letters
+    private static String misspell(final String term) {
+        final var position = term.length() / 2;
+        return term.substring(0, position - 1) + term.charAt(position) + term.charAt(position - 1)
+                + term.substring(position + 1);
+    }
+}
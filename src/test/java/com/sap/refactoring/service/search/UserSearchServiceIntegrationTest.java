@@ -0,0 +1,153 @@
+package com.sap.refactoring.service.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sap.refactoring.data.SearchResultData;
+import com.sap.refactoring.data.UserData;
+import com.sap.refactoring.service.UserService;
+import com.sap.refactoring.tenancy.TenantContext;
+import com.sap.refactoring.users.UserSearchDao;
+import com.sap.refactoring.users.UserSearchDao.Position;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Integration test for the {@link UserSearchService}, against the local database.
+ */
+@SpringBootTest
+class UserSearchServiceIntegrationTest {
+
+    private static final String TENANT = "search-test";
+
+    @Autowired
+    UserService userService;
+
+    @Autowired
+    UserSearchService userSearchService;
+
+    @Autowired
+    UserSearchDao userSearchDao;
+
+    @BeforeEach
+    void setUp() {
+        if (search("thatcher", null, null).getUsers().isEmpty()) {
+            TenantContext.callAs(TENANT, () -> List.of(
+                    createUser("Margaret Thatcher", "margaret.thatcher@search.com"),
+                    createUser("Marge Simpson", "marge@search.com"),
+                    createUser("Bart Simpson", "eatmyshorts@search.com"),
+                    createUser("Homer Simpson", "homer@search.com")));
+        }
+    }
+
+    @Test
+    void misspelledTermTest() {
+        final var users = search("Tatcher", null, null).getUsers();
+        assertEquals("Margaret Thatcher", users.get(0).getName());
+        assertEquals("Margaret Thatcher", search("margret", null, null).getUsers().get(0).getName());
+    }
+
+    @Test
+    void partialTermTest() {
+        assertEquals(List.of("eatmyshorts@search.com"), emails(search("eatmysh", null, null)));
+        assertEquals(3, search("simpson", null, null).getUsers().size());
+        // the best match comes first
+        assertEquals("Marge Simpson", search("marge", null, null).getUsers().get(0).getName());
+        // the term is matched literally
+        assertEquals(List.of(), search("%_%", null, null).getUsers());
+    }
+
+    @Test
+    void pagingTest() {
+        final var all = emails(search("simpson", null, null));
+        final var paged = new ArrayList<String>();
+        String cursor = null;
+        do {
+            final var page = search("simpson", 2, cursor);
+            assertTrue(page.getUsers().size() <= 2);
+            paged.addAll(emails(page));
+            cursor = page.getNext();
+        } while (cursor != null);
+        assertEquals(all, paged);
+
+        final var last = search("simpson", 3, null);
+        assertNotNull(last.getNext());
+        assertNull(search("simpson", 3, last.getNext()).getNext());
+    }
+
+    @Test
+    void limitedCandidatesPagingTest() {
+        // two of the three users named Simpson are candidates, which every page ranks alike, whatever its size
+        final var byOne = pageThrough(1);
+        assertEquals(2, byOne.size());
+        assertEquals(byOne, pageThrough(2));
+        assertEquals(byOne.stream().sorted(Comparator.comparing(Position::distance).thenComparing(Position::id))
+                .distinct().toList(), byOne);
+    }
+
+    @Test
+    void changedUserTest() {
+        final var user = TenantContext.callAs(TENANT, () -> createUser("Winston Churchill", "winston@search.com"));
+        assertEquals(List.of("winston@search.com"), emails(search("Churchil", null, null)));
+
+        user.setName("Clementine Churchill");
+        user.setEmail("clementine@search.com");
+        TenantContext.callAs(TENANT, () -> userService.updateUser(user));
+        assertEquals(List.of("clementine@search.com"), emails(search("clementine", null, null)));
+        assertEquals(List.of(), search("winston", null, null).getUsers());
+
+        TenantContext.callAs(TENANT, () -> {
+            userService.deleteUser(user.getId());
+            return null;
+        });
+        assertEquals(List.of(), search("Churchil", null, null).getUsers());
+    }
+
+    @Test
+    void tenantsAreSeparatedTest() {
+        assertEquals(List.of(), userSearchService.search("search-other", "thatcher", null, null).getUsers());
+    }
+
+    @Test
+    void invalidRequestTest() {
+        assertThrows(IllegalArgumentException.class, () -> search(" ab ", null, null));
+        assertThrows(IllegalArgumentException.class, () -> search("simpson", 0, null));
+        assertThrows(IllegalArgumentException.class, () -> search("simpson", 1000, null));
+        assertThrows(IllegalArgumentException.class, () -> search("simpson", null, "not a cursor"));
+    }
+
+    private SearchResultData search(final String term, final Integer limit, final String cursor) {
+        return userSearchService.search(TENANT, term, limit, cursor);
+    }
+
+    private List<Position> pageThrough(final int limit) {
+        final var positions = new ArrayList<Position>();
+        List<UserSearchDao.Match> page;
+        do {
+            final var after = positions.isEmpty() ? null : positions.get(positions.size() - 1);
+            page = userSearchDao.search(TENANT, "simpson", 0.5, 2, after, limit);
+            page.forEach(match -> positions.add(match.position()));
+        } while (page.size() == limit);
+        return positions;
+    }
+
+    private static List<String> emails(final SearchResultData result) {
+        return result.getUsers().stream().map(UserData::getEmail).toList();
+    }
+
+    private UserData createUser(final String name, final String email) {
+        final var user = new UserData();
+        user.setEmail(email);
+        user.setName(name);
+        user.setRoles(List.of("role1"));
+        return userService.createUser(user);
+    }
+}
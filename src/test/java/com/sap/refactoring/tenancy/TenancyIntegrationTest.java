@@ -0,0 +1,127 @@
+package com.sap.refactoring.tenancy;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sap.refactoring.data.UserData;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Integration test for the isolation of tenants through the /users API.
+ */
+@SpringBootTest
+class TenancyIntegrationTest {
+
+    private static final String TENANT_A = "tenancy-a";
+    private static final String TENANT_B = "tenancy-b";
+    private static final String EMAIL = "shared@tenancy.com";
+
+    @Autowired
+    WebApplicationContext context;
+    @Autowired
+    FilterRegistrationBean<TenantFilter> filter;
+    @Autowired
+    TenancyProperties properties;
+    @Autowired
+    ObjectMapper mapper;
+    MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).addFilters(filter.getFilter()).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        properties.setHeaderRequired(false);
+    }
+
+    @Test
+    void tenantsAreIsolatedTest() throws Exception {
+        // the same email can be used in both tenants
+        final var userA = create(TENANT_A, "a");
+        final var userB = create(TENANT_B, "b");
+        assertNotEquals(userA.getId(), userB.getId());
+
+        // queries only see the users of the tenant, also when answered from the query cache
+        for (int i = 0; i < 2; i++) {
+            assertEquals(List.of(userA.getId()), findByName(TENANT_A, "a"));
+            assertEquals(List.of(), findByName(TENANT_B, "a"));
+        }
+
+        // the users of another tenant cannot be read, updated or deleted
+        mockMvc.perform(get("/users/{id}", userA.getId()).header(TenantFilter.TENANT_ID_HEADER, TENANT_A))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/users/{id}", userA.getId()).header(TenantFilter.TENANT_ID_HEADER, TENANT_B))
+                .andExpect(status().isNotFound());
+        userA.setName("hijacked");
+        mockMvc.perform(put("/users/{id}", userA.getId())
+                        .header(TenantFilter.TENANT_ID_HEADER, TENANT_B)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(userA)))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(delete("/users/{id}", userA.getId()).header(TenantFilter.TENANT_ID_HEADER, TENANT_B))
+                .andExpect(status().isNoContent());
+        assertEquals(List.of(userA.getId()), findByName(TENANT_A, "a"));
+
+        mockMvc.perform(delete("/users/{id}", userA.getId()).header(TenantFilter.TENANT_ID_HEADER, TENANT_A))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(delete("/users/{id}", userB.getId()).header(TenantFilter.TENANT_ID_HEADER, TENANT_B))
+                .andExpect(status().isNoContent());
+    }
+
+    @Test
+    void invalidTenantIsRejectedTest() throws Exception {
+        mockMvc.perform(get("/users").header(TenantFilter.TENANT_ID_HEADER, "../other"))
+                .andExpect(status().isBadRequest());
+
+        properties.setHeaderRequired(true);
+        mockMvc.perform(get("/users"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/users").header(TenantFilter.TENANT_ID_HEADER, TENANT_A))
+                .andExpect(status().isOk());
+    }
+
+    private UserData create(final String tenantId, final String name) throws Exception {
+        final var user = new UserData();
+        user.setEmail(EMAIL);
+        user.setName(name);
+        user.setRoles(List.of("role1"));
+        final var response = mockMvc.perform(post("/users")
+                        .header(TenantFilter.TENANT_ID_HEADER, tenantId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(mapper.writeValueAsString(user)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse();
+        final var created = mapper.readValue(response.getContentAsString(), UserData.class);
+        assertNotNull(created.getId());
+        return created;
+    }
+
+    private List<Long> findByName(final String tenantId, final String name) throws Exception {
+        final var response = mockMvc.perform(get("/users").param("name", name)
+                        .header(TenantFilter.TENANT_ID_HEADER, tenantId))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+        return List.of(mapper.readValue(response.getContentAsString(), UserData[].class)).stream()
+                .map(UserData::getId)
+                .toList();
+    }
+}
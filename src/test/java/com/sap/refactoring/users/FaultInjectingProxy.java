@@ -0,0 +1,105 @@
+package com.sap.refactoring.users;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A TCP proxy standing in for the database, which forwards all traffic to the real database until it is stalled. A
+ * stalled proxy holds back everything sent in either direction, like an unresponsive database server, so clients run
+ * into their timeouts.
+ */
+final class FaultInjectingProxy implements AutoCloseable {
+
+    private final ServerSocket serverSocket;
+    private final String targetHost;
+    private final int targetPort;
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+    private volatile boolean stalled;
+
+    /**
+     * Creates the proxy and starts accepting connections on a free local port.
+     *
+     * @param targetHost The database host
+     * @param targetPort The database port
+     * @throws IOException If the proxy cannot listen
+     */
+    FaultInjectingProxy(final String targetHost, final int targetPort) throws IOException {
+        this.targetHost = targetHost;
+        this.targetPort = targetPort;
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        start(this::accept, "fault-injecting-proxy");
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    void setStalled(final boolean stalled) {
+        this.stalled = stalled;
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (final var socket : sockets) {
+            socket.close();
+        }
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                final var client = serverSocket.accept();
+                final var upstream = new Socket(targetHost, targetPort);
+                sockets.add(client);
+                sockets.add(upstream);
+                start(() -> forward(client, upstream), "fault-injecting-proxy-up");
+                start(() -> forward(upstream, client), "fault-injecting-proxy-down");
+            } catch (final IOException ex) {
+                // closed
+            }
+        }
+    }
+
+    private void forward(final Socket from, final Socket to) {
+        final var buffer = new byte[8192];
+        try (InputStream in = from.getInputStream(); OutputStream out = to.getOutputStream()) {
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                while (stalled) {
+                    Thread.sleep(10);
+                }
+                out.write(buffer, 0, read);
+                out.flush();
+            }
+        } catch (final IOException ex) {
+            // either side has closed the connection
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            close(from);
+            close(to);
+        }
+    }
+
+    private void close(final Socket socket) {
+        sockets.remove(socket);
+        try {
+            socket.close();
+        } catch (final IOException ex) {
+            // ignore
+        }
+    }
+
+    private static void start(final Runnable runnable, final String name) {
+        final var thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
@@ -0,0 +1,151 @@
+package com.sap.refactoring.users;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sap.refactoring.JavaRefactoringTestApplication;
+import com.sap.refactoring.data.UserData;
+import com.sap.refactoring.directory.UserDirectory;
+import com.sap.refactoring.service.UserService;
+import com.sap.refactoring.tenancy.TenantContext;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import jakarta.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.hibernate.Cache;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+
+/**
+ * Integration test for the {@link PersistenceGuard}, with the database behind a {@link FaultInjectingProxy}. The test
+ * runs its own application context against the proxy, with Liquibase disabled so that the schema used by the other
+ * integration tests is left alone.
+ */
+class PersistenceGuardIntegrationTest {
+
+    private static final Duration OPEN_STATE = Duration.ofSeconds(2);
+
+    @Test
+    void unresponsiveDatabaseTest() throws Exception {
+        final var database = database();
+        try (var proxy = new FaultInjectingProxy(database.getHost(), database.getPort());
+                var context = run(proxy, database)) {
+            final var userService = context.getBean(UserService.class);
+            final var guard = context.getBean(PersistenceGuard.class);
+            final var user = userService.createUser(createUser());
+            // loads the user into the second-level cache
+            userService.getUser(user.getId());
+
+            // while the database does not respond, calls fail after the timeouts, until the circuit opens; the failed
+            // query must not leave an empty result in the query cache
+            proxy.setStalled(true);
+            for (int i = 0; i < 4 && guard.getState() == CircuitBreaker.State.CLOSED; i++) {
+                assertThrows(RuntimeException.class, () -> userService.getUsers("unresponsive"));
+            }
+            assertEquals(CircuitBreaker.State.OPEN, guard.getState());
+
+            // now calls fail fast, except for reads which can be answered from the second-level cache
+            final var start = System.nanoTime();
+            assertThrows(CallNotPermittedException.class, () -> userService.getUsers("unresponsive"));
+            assertThrows(CallNotPermittedException.class, () -> userService.getUserByEmail(user.getEmail()));
+            // the directory, which is disabled and hence reads from the database, is guarded as well
+            final var tenantId = context.getBean(TenantContext.class).getTenantId();
+            assertThrows(CallNotPermittedException.class,
+                    () -> context.getBean(UserDirectory.class).findByEmail(tenantId, user.getEmail()));
+            assertEquals(user.getEmail(), userService.getUser(user.getId()).getEmail());
+            assertTrue(System.nanoTime() - start < Duration.ofMillis(500).toNanos());
+            // but not if its roles, which are cached on their own, would have to be read from the database
+            context.getBean(EntityManagerFactory.class).getCache().unwrap(Cache.class)
+                    .evictCollectionData(User.class.getName() + ".roles", user.getId());
+            assertThrows(CallNotPermittedException.class, () -> userService.getUser(user.getId()));
+
+            // once the database responds again, a trial call closes the circuit
+            proxy.setStalled(false);
+            awaitClosed(guard, () -> userService.getUsers("unresponsive"));
+            userService.deleteUser(user.getId());
+        }
+    }
+
+    @Test
+    void unresponsiveDatabaseOnWritesTest() throws Exception {
+        final var database = database();
+        try (var proxy = new FaultInjectingProxy(database.getHost(), database.getPort());
+                var context = run(proxy, database)) {
+            final var userService = context.getBean(UserService.class);
+            final var guard = context.getBean(PersistenceGuard.class);
+            final var users = new ArrayList<UserData>();
+            for (int i = 0; i < 4; i++) {
+                users.add(userService.createUser(createUser()));
+                // loads the user into the second-level cache, so deleting it only writes
+                userService.getUser(users.get(i).getId());
+            }
+
+            // the writes are flushed within the guard, so their failures open the circuit
+            proxy.setStalled(true);
+            for (int i = 0; i < users.size() && guard.getState() == CircuitBreaker.State.CLOSED; i++) {
+                final var id = users.get(i).getId();
+                assertThrows(RuntimeException.class, () -> userService.deleteUser(id));
+            }
+            assertEquals(CircuitBreaker.State.OPEN, guard.getState());
+            assertThrows(CallNotPermittedException.class, () -> userService.createUser(createUser()));
+
+            proxy.setStalled(false);
+            awaitClosed(guard, () -> userService.getUsers("unresponsive"));
+            users.forEach(user -> userService.deleteUser(user.getId()));
+        }
+    }
+
+    private static URI database() throws IOException {
+        final var url = PropertiesLoaderUtils.loadAllProperties("application.properties")
+                .getProperty("spring.datasource.url");
+        return URI.create(url.substring("jdbc:".length()));
+    }
+
+    private static ConfigurableApplicationContext run(final FaultInjectingProxy proxy, final URI database) {
+        return new SpringApplicationBuilder(JavaRefactoringTestApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.liquibase.enabled=false",
+                        "--spring.datasource.url=jdbc:postgresql://localhost:" + proxy.getPort()
+                                + database.getPath() + "?socketTimeout=1",
+                        "--spring.datasource.hikari.connection-timeout=1000",
+                        "--spring.datasource.hikari.validation-timeout=250",
+                        "--spring.datasource.hikari.maximum-pool-size=2",
+                        "--users.invalidation.enabled=false",
+                        "--users.directory.enabled=false",
+                        "--users.persistence-guard.sliding-window-size=4",
+                        "--users.persistence-guard.minimum-number-of-calls=4",
+                        "--users.persistence-guard.wait-duration-in-open-state=" + OPEN_STATE.toMillis() + "ms",
+                        "--users.persistence-guard.permitted-calls-in-half-open-state=1");
+    }
+
+    // calls the operation until a trial call has closed the circuit
+    private static void awaitClosed(final PersistenceGuard guard, final Runnable operation)
+            throws InterruptedException {
+        final var deadline = System.nanoTime() + Duration.ofSeconds(20).toNanos();
+        while (guard.getState() != CircuitBreaker.State.CLOSED && System.nanoTime() < deadline) {
+            Thread.sleep(OPEN_STATE.toMillis() / 4);
+            try {
+                operation.run();
+            } catch (final RuntimeException ex) {
+                // the circuit is still open, or the pool is reconnecting
+            }
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, guard.getState());
+    }
+
+    private static UserData createUser() {
+        final var user = new UserData();
+        user.setEmail("guard" + System.nanoTime() + "@integration.com");
+        user.setName("guard");
+        user.setRoles(List.of("role1"));
+        return user;
+    }
+}
@@ -0,0 +1,120 @@
+package com.sap.refactoring.users;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.sap.refactoring.tenancy.TenancyProperties;
+import com.sap.refactoring.tenancy.TenantContext;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.TransientDataAccessResourceException;
+
+/**
+ * Unit test for the {@link PersistenceGuard}.
+ */
+class PersistenceGuardTest {
+
+    @Test
+    void tenantBulkheadTest() throws Exception {
+        final var properties = new PersistenceGuardProperties();
+        properties.setMaxConcurrentCallsPerTenant(1);
+        final var guard = new PersistenceGuard(properties, new TenantContext(new TenancyProperties()));
+
+        // a tenant using up its share of the calls
+        final var started = new CountDownLatch(1);
+        final var release = new CountDownLatch(1);
+        final var busy = CompletableFuture.runAsync(() -> TenantContext.callAs("busy", () -> guard.execute(() -> {
+            started.countDown();
+            await(release);
+            return null;
+        })));
+        started.await();
+
+        // is limited, without affecting the other tenants
+        assertThrows(BulkheadFullException.class, () -> TenantContext.callAs("busy", () -> guard.execute(() -> 1)));
+        assertEquals(1, TenantContext.callAs("other", () -> guard.execute(() -> 1)));
+
+        release.countDown();
+        busy.get();
+        assertEquals(1, TenantContext.callAs("busy", () -> guard.execute(() -> 1)));
+    }
+
+    @Test
+    void bulkheadRejectionsAreNotSuccessesTest() throws Exception {
+        final var properties = new PersistenceGuardProperties();
+        properties.setMaxConcurrentCalls(1);
+        properties.setMaxWaitDuration(Duration.ZERO);
+        properties.setSlidingWindowSize(3);
+        properties.setMinimumNumberOfCalls(2);
+        properties.setFailureRateThreshold(100);
+        final var guard = new PersistenceGuard(properties, new TenantContext(new TenancyProperties()));
+
+        // a failing call holding the shared bulkhead, which rejects the next call
+        final var started = new CountDownLatch(1);
+        final var release = new CountDownLatch(1);
+        final var busy = CompletableFuture.runAsync(() -> TenantContext.callAs("busy", () -> guard.execute(() -> {
+            started.countDown();
+            await(release);
+            throw new TransientDataAccessResourceException("down");
+        })));
+        started.await();
+        assertThrows(BulkheadFullException.class, () -> TenantContext.callAs("other", () -> guard.execute(() -> 1)));
+        release.countDown();
+        assertThrows(ExecutionException.class, busy::get);
+
+        // the rejection does not dilute the failures
+        assertThrows(TransientDataAccessResourceException.class, () -> guard.execute(() -> {
+            throw new TransientDataAccessResourceException("down");
+        }));
+        assertEquals(CircuitBreaker.State.OPEN, guard.getState());
+    }
+
+    @Test
+    void longRunningCallsAreNotSlowCallsTest() {
+        final var properties = new PersistenceGuardProperties();
+        properties.setSlowCallDuration(Duration.ofMillis(1));
+        properties.setMinimumNumberOfCalls(2);
+        properties.setSlidingWindowSize(2);
+        properties.setFailureRateThreshold(100);
+        final var guard = new PersistenceGuard(properties, new TenantContext(new TenancyProperties()));
+
+        for (int i = 0; i < 4; i++) {
+            guard.executeLongRunning(() -> {
+                sleep(5L);
+                return null;
+            });
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, guard.getState());
+
+        // their failures do count
+        for (int i = 0; i < 2; i++) {
+            assertThrows(TransientDataAccessResourceException.class, () -> guard.executeLongRunning(() -> {
+                throw new TransientDataAccessResourceException("down");
+            }));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, guard.getState());
+        assertThrows(CallNotPermittedException.class, () -> guard.executeLongRunning(() -> 1));
+    }
+
+    private static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(final CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
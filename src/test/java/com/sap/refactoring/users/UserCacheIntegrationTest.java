@@ -0,0 +1,100 @@
+package com.sap.refactoring.users;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sap.refactoring.data.UserData;
+import com.sap.refactoring.service.UserChangedEvent;
+import com.sap.refactoring.service.UserService;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.List;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * Integration test for the second-level and query cache of {@link User} entities, against the local database.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class UserCacheIntegrationTest {
+
+    @Autowired
+    UserService userService;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void readsAreCachedTest() {
+        final var user = userService.createUser(createUser("cached"));
+
+        // repeated reads by id and by email are served from the cache
+        userService.getUser(user.getId());
+        userService.getUserByEmail(user.getEmail());
+        final var statements = statistics.getPrepareStatementCount();
+        assertEquals(user, userService.getUser(user.getId()));
+        assertEquals(user, userService.getUserByEmail(user.getEmail()));
+        assertEquals(statements, statistics.getPrepareStatementCount());
+        assertTrue(statistics.getSecondLevelCacheHitCount() > 0);
+        assertTrue(statistics.getQueryCacheHitCount() > 0);
+    }
+
+    @Test
+    void writesInvalidateTest() {
+        final var user = userService.createUser(createUser("original"));
+        assertEquals(1, userService.getUsers("original").size());
+        assertEquals(user, userService.getUserByEmail(user.getEmail()));
+
+        // an update is visible to all lookups
+        user.setName("renamed");
+        user.setEmail("renamed@integration.com");
+        user.setRoles(List.of("role1", "role2"));
+        userService.updateUser(user);
+        assertEquals(user, userService.getUser(user.getId()));
+        assertEquals(user, userService.getUserByEmail("renamed@integration.com"));
+        assertNull(userService.getUserByEmail("original@integration.com"));
+        assertTrue(userService.getUsers("original").isEmpty());
+        assertEquals(List.of(user), userService.getUsers("renamed"));
+
+        // as is a deletion
+        userService.deleteUser(user.getId());
+        assertNull(userService.getUser(user.getId()));
+        assertNull(userService.getUserByEmail("renamed@integration.com"));
+        assertTrue(userService.getUsers("renamed").isEmpty());
+    }
+
+    @Test
+    void remoteChangesEvictTest() {
+        final var user = userService.createUser(createUser("remote"));
+        userService.getUser(user.getId());
+        assertTrue(entityManagerFactory.getCache().contains(User.class, user.getId()));
+
+        eventPublisher.publishEvent(new UserChangedEvent(user.getId(), user.getEmail(), true));
+        assertFalse(entityManagerFactory.getCache().contains(User.class, user.getId()));
+    }
+
+    private UserData createUser(final String name) {
+        final var user = new UserData();
+        user.setName(name);
+        user.setEmail(name + "@integration.com");
+        user.setRoles(List.of("role1"));
+        return user;
+    }
+}
@@ -7,6 +7,9 @@ import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.Mockito.mock;
 
 import com.sap.refactoring.repository.UserRepository;
+import com.sap.refactoring.tenancy.TenancyProperties;
+import com.sap.refactoring.tenancy.TenantContext;
+import jakarta.persistence.EntityManagerFactory;
 import java.util.List;
 import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
@@ -36,7 +39,9 @@ class UserDaoUnitTest {
 
         @Bean
         public UserDao userDao() {
-            return new UserDao(userRepository());
+            final var tenantContext = new TenantContext(new TenancyProperties());
+            return new UserDao(userRepository(), new PersistenceGuard(new PersistenceGuardProperties(), tenantContext),
+                    mock(EntityManagerFactory.class), tenantContext);
         }
 
         @Bean
@@ -62,7 +67,7 @@ class UserDaoUnitTest {
         // create a user
         final var user = createUser("fake", List.of("admin", "customerservice"));
         userDao.createUser(user);
-        Mockito.verify(userRepository, Mockito.times(1)).save(user);
+        Mockito.verify(userRepository, Mockito.times(1)).saveAndFlush(user);
     }
 
     @Test
@@ -75,6 +80,7 @@ class UserDaoUnitTest {
         Mockito.when(userRepository.findById(1L)).thenReturn(Optional.of(user));
         userDao.deleteUser(1L);
         Mockito.verify(userRepository, Mockito.times(1)).deleteById(user.getId());
+        Mockito.verify(userRepository, Mockito.times(1)).flush();
     }
 
     @Test
@@ -130,19 +136,19 @@ class UserDaoUnitTest {
         final var originalUser = createUser("bob", List.of("role1", "role2"));
         originalUser.setName("John");
         final var user = createUser("bob", List.of("role1", "role2", "role3"));
-        Mockito.when(userRepository.save(user)).thenReturn(user);
+        Mockito.when(userRepository.saveAndFlush(user)).thenReturn(user);
 
         final var updatedUser = userDao.updateUser(user);
         assertTrue(updatedUser.isPresent());
         assertEquals(updatedUser.get(), user);
-        Mockito.verify(userRepository, Mockito.times(1)).save(user);
+        Mockito.verify(userRepository, Mockito.times(1)).saveAndFlush(user);
 
         // attempt to update a user that doesn't exist
         final var invalidUser = createUser("notfound", List.of("role1", "role2"));
-        Mockito.when(userRepository.save(invalidUser)).thenReturn(invalidUser);
+        Mockito.when(userRepository.saveAndFlush(invalidUser)).thenReturn(invalidUser);
         final var notUpdatedUser = userDao.updateUser(invalidUser);
         assertTrue(notUpdatedUser.isPresent());
-        Mockito.verify(userRepository, Mockito.times(1)).save(invalidUser);
+        Mockito.verify(userRepository, Mockito.times(1)).saveAndFlush(invalidUser);
     }
 
 
@@ -154,6 +160,7 @@ class UserDaoUnitTest {
     User createUser(final String name, final List<String> roles) {
         final var user = new User();
         user.setId(1L);
+        user.setTenantId(new TenancyProperties().getDefaultTenant());
         user.setName(name);
         user.setEmail(name + "@integration.com");
         user.setRoles(roles);
@@ -0,0 +1,89 @@
+package com.sap.refactoring.web.cache;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sap.refactoring.data.UserData;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for the {@link UserResponseCache}.
+ */
+class UserResponseCacheTest {
+
+    private static final String TENANT = "tenant1";
+
+    @Test
+    void stalePutIsRejectedTest() {
+        final var cache = new UserResponseCache(new ResponseCacheProperties(), new ObjectMapper());
+
+        // a reader takes a stamp, then the user is changed before the reader populates the cache
+        final var stamp = cache.stamp();
+        cache.evict(1L);
+        assertNotNull(cache.put(TENANT, 1L, stamp, createUser(1L), false));
+        assertNull(cache.get(TENANT, 1L, false));
+
+        // without a concurrent change the entry is stored
+        cache.put(TENANT, 1L, cache.stamp(), createUser(1L), false);
+        assertNotNull(cache.get(TENANT, 1L, false));
+    }
+
+    @Test
+    void sizeIsBoundedTest() {
+        final var properties = new ResponseCacheProperties();
+        properties.setMaxBytes(300);
+        final var cache = new UserResponseCache(properties, new ObjectMapper());
+
+        for (long id = 1; id <= 10; id++) {
+            cache.put(TENANT, id, cache.stamp(), createUser(id), false);
+        }
+
+        // only the most recently used entries survive
+        assertNull(cache.get(TENANT, 1L, false));
+        assertNotNull(cache.get(TENANT, 10L, false));
+    }
+
+    @Test
+    void compressedOnFirstGzipRequestTest() {
+        final var properties = new ResponseCacheProperties();
+        properties.setCompressionMinSize(0);
+        final var cache = new UserResponseCache(properties, new ObjectMapper());
+
+        assertFalse(cache.put(TENANT, 1L, cache.stamp(), createUser(1L), false).gzipped());
+        assertFalse(cache.get(TENANT, 1L, false).gzipped());
+        assertTrue(cache.get(TENANT, 1L, true).gzipped());
+        // the plain body is still served to clients which do not accept gzip
+        assertFalse(cache.get(TENANT, 1L, false).gzipped());
+    }
+
+    @Test
+    void otherTenantIsNotServedTest() {
+        final var cache = new UserResponseCache(new ResponseCacheProperties(), new ObjectMapper());
+        cache.put(TENANT, 1L, cache.stamp(), createUser(1L), false);
+        assertNull(cache.get("tenant2", 1L, false));
+        assertNotNull(cache.get(TENANT, 1L, false));
+    }
+
+    @Test
+    void acceptsGzipTest() {
+        assertTrue(UserResponseCache.acceptsGzip("gzip"));
+        assertTrue(UserResponseCache.acceptsGzip("deflate, gzip;q=0.8"));
+        assertTrue(UserResponseCache.acceptsGzip("*"));
+        assertFalse(UserResponseCache.acceptsGzip(null));
+        assertFalse(UserResponseCache.acceptsGzip("deflate, br"));
+        assertFalse(UserResponseCache.acceptsGzip("gzip;q=0"));
+    }
+
+    private UserData createUser(final long id) {
+        final var user = new UserData();
+        user.setId(id);
+        user.setName("user" + id);
+        user.setEmail("user" + id + "@integration.com");
+        user.setRoles(List.of("role1"));
+        return user;
+    }
+}
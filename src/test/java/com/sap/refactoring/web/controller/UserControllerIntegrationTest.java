@@ -1,5 +1,6 @@
 package com.sap.refactoring.web.controller;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -10,15 +11,27 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sap.refactoring.data.UserData;
+import com.sap.refactoring.logging.ErrorLogger;
+import com.sap.refactoring.logging.LoggingProperties;
+import com.sap.refactoring.service.UserChangedEvent;
 import com.sap.refactoring.service.UserService;
+import com.sap.refactoring.tenancy.TenancyProperties;
+import com.sap.refactoring.tenancy.TenantContext;
 import com.sap.refactoring.users.User;
+import com.sap.refactoring.web.cache.ResponseCacheProperties;
+import com.sap.refactoring.web.cache.UserResponseCache;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import java.io.ByteArrayInputStream;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpHeaders;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
@@ -27,7 +40,9 @@ import org.springframework.test.web.servlet.ResultActions;
  * Integration test for the {@link UserController}. Moved from the original "UserIntegrationTest" into the same package
  * as the class it's testing. The "UserResourceUnitTest" didn't appear to do anything useful, it was removed.
  */
-@WebMvcTest
+@WebMvcTest(UserController.class)
+@Import({UserResponseCache.class, ResponseCacheProperties.class, ErrorLogger.class, LoggingProperties.class,
+        TenantContext.class, TenancyProperties.class})
 class UserControllerIntegrationTest {
 
     @MockBean
@@ -38,6 +53,9 @@ class UserControllerIntegrationTest {
     @Autowired
     MockMvc mockMvc;
 
+    @Autowired
+    UserResponseCache userResponseCache;
+
     @BeforeEach
     public void setUp() {
         Mockito.reset(userService);
@@ -136,6 +154,66 @@ class UserControllerIntegrationTest {
         assertTrue(users.isEmpty());
     }
 
+    @Test
+    void unavailableDatabaseTest() throws Exception {
+        // calls rejected by the open circuit are answered with a 503
+        final var rejected = CallNotPermittedException.createCallNotPermittedException(
+                CircuitBreaker.ofDefaults("test"));
+        Mockito.when(userService.getUsers("user1")).thenThrow(rejected);
+        mockMvc.perform(get("/users?name=user1")).andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    void getUserTest() throws Exception {
+        final var user = createUser("cached");
+        user.setId(42L);
+        Mockito.when(userService.getUser(42L)).thenReturn(user);
+
+        // the first request is served by the service, the second one from the cache
+        for (int i = 0; i < 2; i++) {
+            final var result = mockMvc.perform(get("/users/42"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                    .andReturn();
+            assertEquals(user, parsePayload(result.getResponse().getContentAsString()));
+        }
+        Mockito.verify(userService, Mockito.times(1)).getUser(42L);
+
+        // once the user changed, the service is called again
+        userResponseCache.onUserChanged(new UserChangedEvent(42L, user.getEmail()));
+        mockMvc.perform(get("/users/42")).andExpect(status().isOk());
+        Mockito.verify(userService, Mockito.times(2)).getUser(42L);
+
+        // unknown users are not cached
+        mockMvc.perform(get("/users/43")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/users/43")).andExpect(status().isNotFound());
+        Mockito.verify(userService, Mockito.times(2)).getUser(43L);
+    }
+
+    @Test
+    void getUserGzipTest() throws Exception {
+        // a name long enough to exceed the compression threshold
+        final var user = createUser("x".repeat(1024));
+        user.setId(7L);
+        Mockito.when(userService.getUser(7L)).thenReturn(user);
+
+        final var result = mockMvc.perform(get("/users/7").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn();
+        try (var in = new GZIPInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+            assertEquals(user, mapper.readValue(in, UserData.class));
+        }
+
+        // clients that do not accept gzip get the plain payload
+        final var plain = mockMvc.perform(get("/users/7"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andReturn();
+        assertArrayEquals(mapper.writeValueAsBytes(user), plain.getResponse().getContentAsByteArray());
+        Mockito.verify(userService, Mockito.times(1)).getUser(7L);
+    }
+
     private ResultActions createNewUser(final UserData user) throws Exception {
         return mockMvc.perform(post("/users")
                 .contentType("application/json")